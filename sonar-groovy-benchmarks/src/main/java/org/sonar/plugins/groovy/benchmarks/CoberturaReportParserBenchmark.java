@@ -0,0 +1,81 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.plugins.groovy.cobertura.CoberturaReportParser;
+
+/**
+ * Throughput of {@link CoberturaReportParser}, in files per second: parsing the report, resolving
+ * its files and saving their coverage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoberturaReportParserBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int files;
+
+  private Corpus corpus;
+  private File report;
+  private SensorContextTester context;
+
+  @Setup
+  public void setUp() throws IOException {
+    corpus = Corpus.create(files);
+    report = Reports.cobertura(corpus).toFile();
+  }
+
+  @Setup(Level.Invocation)
+  public void newContext() {
+    context = corpus.newContext();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    corpus.close();
+  }
+
+  @Benchmark
+  public SensorContextTester parseReport(AnalyzedFiles counter) {
+    new CoberturaReportParser(context, corpus.fileSystem()).parseReport(report);
+    counter.files += files;
+    return context;
+  }
+}
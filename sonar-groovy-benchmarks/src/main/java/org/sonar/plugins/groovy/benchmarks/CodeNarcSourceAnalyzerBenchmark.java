@@ -0,0 +1,97 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.codenarc.results.Results;
+import org.codenarc.ruleset.CompositeRuleSet;
+import org.codenarc.ruleset.RuleSet;
+import org.codenarc.ruleset.XmlFileRuleSet;
+import org.sonar.plugins.groovy.codenarc.CodeNarcSourceAnalyzer;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
+
+/**
+ * Throughput of {@link CodeNarcSourceAnalyzer}, in files per second, with the basic, imports and
+ * unnecessary rule sets of CodeNarc. Each invocation parses the files again, from an empty AST
+ * cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeNarcSourceAnalyzerBenchmark {
+
+  private static final String[] RULE_SETS = {
+    "rulesets/basic.xml", "rulesets/imports.xml", "rulesets/unnecessary.xml"
+  };
+
+  @Param({"10", "100", "1000"})
+  public int files;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private Corpus corpus;
+
+  @Setup
+  public void setUp() throws IOException {
+    corpus = Corpus.create(files);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    corpus.close();
+  }
+
+  @Benchmark
+  public Results analyze(AnalyzedFiles counter) {
+    CodeNarcSourceAnalyzer analyzer =
+        new CodeNarcSourceAnalyzer(
+            corpus.inputFiles(),
+            threads,
+            CodeNarcSourceAnalyzerBenchmark::ruleSet,
+            new GroovyAstCache());
+    Results results = analyzer.analyze(ruleSet());
+    counter.files += files;
+    return results;
+  }
+
+  private static RuleSet ruleSet() {
+    CompositeRuleSet ruleSet = new CompositeRuleSet();
+    for (String path : RULE_SETS) {
+      ruleSet.addRuleSet(new XmlFileRuleSet(path));
+    }
+    return ruleSet;
+  }
+}
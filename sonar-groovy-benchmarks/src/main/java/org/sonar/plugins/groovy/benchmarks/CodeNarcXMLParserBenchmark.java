@@ -0,0 +1,78 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.plugins.groovy.codenarc.CodeNarcXMLParser;
+import org.sonar.plugins.groovy.codenarc.CodeNarcXMLParser.CodeNarcViolation;
+
+/**
+ * Throughput of {@link CodeNarcXMLParser}, in files per second, on a report with {@link
+ * #violationsPerFile} violations on every file of the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeNarcXMLParserBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int files;
+
+  @Param({"10"})
+  public int violationsPerFile;
+
+  private Corpus corpus;
+  private File report;
+
+  @Setup
+  public void setUp() throws IOException {
+    corpus = Corpus.create(files);
+    report = Reports.codeNarc(corpus, violationsPerFile).toFile();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    corpus.close();
+  }
+
+  @Benchmark
+  public List<CodeNarcViolation> parse(AnalyzedFiles counter) {
+    List<CodeNarcViolation> violations = CodeNarcXMLParser.parse(report, corpus.fileSystem());
+    counter.files += files;
+    return violations;
+  }
+}
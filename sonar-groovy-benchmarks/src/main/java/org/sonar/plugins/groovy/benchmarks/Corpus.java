@@ -0,0 +1,128 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.plugins.groovy.foundation.Groovy;
+
+/**
+ * A generated project on disk: one {@link GroovySources#generateClass(int) class} per file under
+ * {@code src/org/example/generated}, indexed in a file system as the scanner would. Reports and
+ * class files of the benchmarks are written next to the sources.
+ */
+public final class Corpus implements Closeable {
+
+  public static final String PACKAGE_PATH = "org/example/generated";
+  public static final String SOURCE_DIRECTORY = "src";
+
+  private final Path baseDir;
+  private final DefaultFileSystem fileSystem;
+  private final List<InputFile> inputFiles = new ArrayList<>();
+
+  private Corpus(Path baseDir) {
+    this.baseDir = baseDir;
+    this.fileSystem = SensorContextTester.create(baseDir).fileSystem();
+    fileSystem.setEncoding(UTF_8);
+  }
+
+  public static Corpus create(int files) throws IOException {
+    Corpus corpus = new Corpus(Files.createTempDirectory("groovy-benchmarks"));
+    for (int i = 0; i < files; i++) {
+      corpus.add(sourcePath(i), GroovySources.generateClass(i));
+    }
+    return corpus;
+  }
+
+  /** Path of the source of class {@code index}, relative to the source directory. */
+  public static String sourcePath(int index) {
+    return PACKAGE_PATH + "/" + GroovySources.className(index) + ".groovy";
+  }
+
+  private void add(String sourcePath, String content) throws IOException {
+    Path file = write(SOURCE_DIRECTORY + "/" + sourcePath, content);
+    InputFile inputFile =
+        TestInputFileBuilder.create("", baseDir.toFile(), file.toFile())
+            .setLanguage(Groovy.KEY)
+            .setType(InputFile.Type.MAIN)
+            .setCharset(UTF_8)
+            .initMetadata(content)
+            .build();
+    fileSystem.add(inputFile);
+    inputFiles.add(inputFile);
+  }
+
+  public Path baseDir() {
+    return baseDir;
+  }
+
+  public DefaultFileSystem fileSystem() {
+    return fileSystem;
+  }
+
+  public List<InputFile> inputFiles() {
+    return Collections.unmodifiableList(inputFiles);
+  }
+
+  public int size() {
+    return inputFiles.size();
+  }
+
+  /**
+   * A context to save the results of one benchmark invocation in, so that measures do not pile up
+   * across invocations. Its file system is empty: analyzers get the corpus one explicitly.
+   */
+  public SensorContextTester newContext() {
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.fileSystem().setEncoding(UTF_8);
+    return context;
+  }
+
+  public Path write(String relativePath, String content) throws IOException {
+    return write(relativePath, content.getBytes(UTF_8));
+  }
+
+  public Path write(String relativePath, byte[] content) throws IOException {
+    Path file = baseDir.resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    return Files.write(file, content);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (Stream<Path> paths = Files.walk(baseDir)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+}
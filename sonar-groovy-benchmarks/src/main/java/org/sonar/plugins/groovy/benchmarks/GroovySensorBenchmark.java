@@ -0,0 +1,99 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.plugins.groovy.GroovySensor;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
+
+/**
+ * Throughput of {@link GroovySensor}, in files per second: base metrics, highlighting, CPD tokens
+ * and GMetrics complexity of every file of the corpus. Each invocation starts from an empty AST
+ * cache and a fresh context, as a new analysis would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroovySensorBenchmark {
+
+  private static final FileLinesContext NO_FILE_LINES =
+      (FileLinesContext)
+          Proxy.newProxyInstance(
+              FileLinesContext.class.getClassLoader(),
+              new Class<?>[] {FileLinesContext.class},
+              (proxy, method, args) -> null);
+
+  private static final FileLinesContextFactory FILE_LINES_CONTEXT_FACTORY =
+      inputFile -> NO_FILE_LINES;
+
+  @Param({"10", "100", "1000"})
+  public int files;
+
+  private Corpus corpus;
+  private SensorContextTester context;
+
+  @Setup
+  public void setUp() throws IOException {
+    corpus = Corpus.create(files);
+  }
+
+  @Setup(Level.Invocation)
+  public void newContext() {
+    context = corpus.newContext();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    corpus.close();
+  }
+
+  @Benchmark
+  public SensorContextTester execute(AnalyzedFiles counter) {
+    new GroovySensor(
+            new MapSettings().asConfig(),
+            FILE_LINES_CONTEXT_FACTORY,
+            corpus.fileSystem(),
+            new GroovyAstCache())
+        .execute(context);
+    counter.files += files;
+    return context;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+/**
+ * Generates Groovy sources for the benchmarks. The output only depends on its arguments, so runs
+ * on different commits analyse exactly the same code.
+ */
+public final class GroovySources {
+
+  private GroovySources() {}
+
+  /** A single file declaring {@code classes} classes of a few methods each. */
+  public static String generate(int classes) {
+    StringBuilder source = new StringBuilder();
+    appendHeader(source);
+    for (int i = 0; i < classes; i++) {
+      appendClass(source, i);
+    }
+    return source.toString();
+  }
+
+  /** A file declaring the single class {@link #className(int)}, as most projects are laid out. */
+  public static String generateClass(int index) {
+    StringBuilder source = new StringBuilder();
+    appendHeader(source);
+    appendClass(source, index);
+    return source.toString();
+  }
+
+  public static String className(int index) {
+    return "Generated" + index;
+  }
+
+  private static void appendHeader(StringBuilder source) {
+    source.append("/*\n * Generated benchmark source\n */\n");
+    source.append("package org.example.generated\n\n");
+    source.append("import groovy.transform.CompileStatic\n");
+    source.append("import java.util.concurrent.ConcurrentHashMap\n\n");
+  }
+
+  private static void appendClass(StringBuilder source, int index) {
+    String name = className(index);
+    source.append("/**\n * Class number ").append(index).append(".\n */\n");
+    source.append("@CompileStatic\n");
+    source.append("class ").append(name).append(" implements Serializable {\n");
+    source.append("  private static final long LIMIT = ").append(index * 31L).append("L\n");
+    source.append("  private final Map<String, Integer> counts = new ConcurrentHashMap<>()\n");
+    source.append("  def label = \"").append(name).append(" #${LIMIT}\"\n\n");
+    source.append("  int count(String key) {\n");
+    source.append("    // null keys are counted as empty\n");
+    source.append("    def value = counts.get(key ?: '')\n");
+    source.append("    if (value == null) {\n");
+    source.append("      return 0\n");
+    source.append("    } else if (value > LIMIT) {\n");
+    source.append("      throw new IllegalStateException(\"Too many: $key\")\n");
+    source.append("    }\n");
+    source.append("    return value\n");
+    source.append("  }\n\n");
+    source.append("  List<String> matching(String pattern) {\n");
+    source.append("    counts.keySet().findAll { it ==~ /${pattern}.*/ }.collect { it.trim() }\n");
+    source.append("  }\n\n");
+    source.append("  double ratio(int total) {\n");
+    source.append("    for (int i = 0; i < total; i++) {\n");
+    source.append("      counts.merge(\"k\" + i, 1, Integer::sum)\n");
+    source.append("    }\n");
+    source.append("    total == 0 ? 0.0d : counts.size() / (double) total * 1.5e0\n");
+    source.append("  }\n");
+    source.append("}\n\n");
+  }
+}
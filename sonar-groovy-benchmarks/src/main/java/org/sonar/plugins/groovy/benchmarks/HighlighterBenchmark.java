@@ -0,0 +1,111 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+import groovyjarjarantlr.Token;
+import groovyjarjarantlr.TokenStreamException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.plugins.groovy.foundation.GroovyHighlighterAndTokenizer;
+import org.sonar.plugins.groovy.foundation.GroovyTokenPipeline;
+
+/**
+ * Throughput of {@link GroovyHighlighterAndTokenizer}, in tokens per second. {@link #classify}
+ * replays tokens lexed beforehand, so that it only measures highlighting and CPD tokenization;
+ * {@link #lexAndClassify} includes lexing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HighlighterBenchmark {
+
+  @Param({"100", "1000"})
+  public int classes;
+
+  private final InputFile inputFile =
+      TestInputFileBuilder.create("", "src/Generated.groovy").setType(InputFile.Type.MAIN).build();
+  private String source;
+  private List<Token> tokens;
+  private int[] nextTokenLines;
+
+  /** Counts visited tokens, which JMH reports as operations. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Tokens {
+    public long tokens;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      tokens = 0;
+    }
+  }
+
+  @Setup
+  public void setUp() throws TokenStreamException {
+    source = GroovySources.generate(classes);
+    tokens = new ArrayList<>();
+    List<Integer> lines = new ArrayList<>();
+    GroovyTokenPipeline.lex(
+        new StringReader(source),
+        (token, nextTokenLine) -> {
+          tokens.add(token);
+          lines.add(nextTokenLine);
+        });
+    nextTokenLines = lines.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  @Benchmark
+  public GroovyHighlighterAndTokenizer classify(Tokens counter) {
+    GroovyHighlighterAndTokenizer highlighter = new GroovyHighlighterAndTokenizer(inputFile);
+    for (int i = 0; i < nextTokenLines.length; i++) {
+      highlighter.visitToken(tokens.get(i), nextTokenLines[i]);
+    }
+    counter.tokens += nextTokenLines.length;
+    return highlighter;
+  }
+
+  @Benchmark
+  public void lexAndClassify(Tokens counter, Blackhole blackhole) throws TokenStreamException {
+    GroovyHighlighterAndTokenizer highlighter = new GroovyHighlighterAndTokenizer(inputFile);
+    GroovyTokenPipeline.lex(new StringReader(source), highlighter);
+    counter.tokens += nextTokenLines.length;
+    blackhole.consume(highlighter);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.jacoco.JaCoCoAnalyzer;
+
+/**
+ * Throughput of {@link JaCoCoAnalyzer}, in files per second: indexing the class files, reading the
+ * execution data, analysing the classes and saving the coverage of their source files. Class files
+ * are analysed on {@link #threads} threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JaCoCoAnalyzerBenchmark {
+
+  private static final String BINARIES = "sonar.groovy.binaries";
+
+  @Param({"10", "100", "1000"})
+  public int files;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private Corpus corpus;
+  private Path report;
+  private MapSettings settings;
+  private SensorContextTester context;
+
+  @Setup
+  public void setUp() throws IOException {
+    corpus = Corpus.create(files);
+    report = Reports.jacoco(corpus);
+    settings = new MapSettings();
+    settings.setProperty(BINARIES, "target/classes");
+    settings.setProperty(Groovy.ANALYSIS_THREADS_KEY, threads);
+  }
+
+  @Setup(Level.Invocation)
+  public void newContext() {
+    context = corpus.newContext();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    corpus.close();
+  }
+
+  @Benchmark
+  public SensorContextTester analyse(AnalyzedFiles counter) {
+    new JaCoCoAnalyzer(new GroovyFileSystem(corpus.fileSystem()), settings.asConfig(), report)
+        .analyse(context);
+    counter.files += files;
+    return context;
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Writes the reports the sensors import, for every file of a {@link Corpus}. Line numbers point
+ * into the code of {@link GroovySources#generateClass(int)}, so that all of them are valid.
+ */
+public final class Reports {
+
+  /** Lines holding statements in a generated class. */
+  private static final int[] EXECUTABLE_LINES = {
+    14, 15, 16, 20, 21, 22, 23, 24, 26, 30, 34, 35, 37
+  };
+
+  /** Lines holding conditions in a generated class. */
+  private static final int[] BRANCH_LINES = {21, 23, 34, 37};
+
+  private static final String[] RULE_NAMES = {
+    "UnnecessaryGString", "IfStatementBraces", "ReturnNullFromCatchBlock", "ThrowRuntimeException"
+  };
+
+  private static final int METHODS = 5;
+
+  private Reports() {}
+
+  /** A CodeNarc XML report with {@code violationsPerFile} violations in every file. */
+  public static Path codeNarc(Corpus corpus, int violationsPerFile) throws IOException {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+    xml.append("<CodeNarc url='https://codenarc.org' version='3.3.0'>\n");
+    xml.append("  <Project title='benchmark'>\n    <SourceDirectory>")
+        .append(corpus.baseDir().resolve(Corpus.SOURCE_DIRECTORY).toString().replace('\\', '/'))
+        .append("</SourceDirectory>\n  </Project>\n");
+    xml.append("  <Package path='")
+        .append(Corpus.PACKAGE_PATH)
+        .append("' totalFiles='")
+        .append(corpus.size())
+        .append("'>\n");
+    for (int i = 0; i < corpus.size(); i++) {
+      xml.append("    <File name='").append(GroovySources.className(i)).append(".groovy'>\n");
+      for (int v = 0; v < violationsPerFile; v++) {
+        int line = EXECUTABLE_LINES[v % EXECUTABLE_LINES.length];
+        xml.append("      <Violation ruleName='")
+            .append(RULE_NAMES[v % RULE_NAMES.length])
+            .append("' priority='2' lineNumber='")
+            .append(line)
+            .append("'>\n        <SourceLine><![CDATA[statement on line ")
+            .append(line)
+            .append("]]></SourceLine>\n        <Message><![CDATA[Violation ")
+            .append(v)
+            .append(" in ")
+            .append(GroovySources.className(i))
+            .append("]]></Message>\n      </Violation>\n");
+      }
+      xml.append("    </File>\n");
+    }
+    xml.append("  </Package>\n</CodeNarc>\n");
+    return corpus.write("target/CodeNarcXmlReport.xml", xml.toString());
+  }
+
+  /** A Cobertura XML report covering every other line and half of the conditions of each file. */
+  public static Path cobertura(Corpus corpus) throws IOException {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+    xml.append("<coverage line-rate='0.5' branch-rate='0.5' version='2.1.1' timestamp='0'>\n");
+    xml.append("  <sources>\n    <source>")
+        .append(corpus.baseDir().resolve(Corpus.SOURCE_DIRECTORY))
+        .append("</source>\n  </sources>\n");
+    xml.append("  <packages>\n    <package name='org.example.generated' line-rate='0.5'>\n");
+    xml.append("      <classes>\n");
+    for (int i = 0; i < corpus.size(); i++) {
+      xml.append("        <class name='org.example.generated.")
+          .append(GroovySources.className(i))
+          .append("' filename='")
+          .append(Corpus.sourcePath(i))
+          .append("' line-rate='0.5' branch-rate='0.5'>\n");
+      xml.append("          <methods/>\n          <lines>\n");
+      for (int l = 0; l < EXECUTABLE_LINES.length; l++) {
+        int line = EXECUTABLE_LINES[l];
+        xml.append("            <line number='")
+            .append(line)
+            .append("' hits='")
+            .append(l % 2 == 0 ? i + 1 : 0)
+            .append('\'');
+        if (isBranchLine(line)) {
+          xml.append(" branch='true' condition-coverage='50% (1/2)'");
+        } else {
+          xml.append(" branch='false'");
+        }
+        xml.append("/>\n");
+      }
+      xml.append("          </lines>\n        </class>\n");
+    }
+    xml.append("      </classes>\n    </package>\n  </packages>\n</coverage>\n");
+    return corpus.write("target/coverage.xml", xml.toString());
+  }
+
+  private static boolean isBranchLine(int line) {
+    for (int branchLine : BRANCH_LINES) {
+      if (branchLine == line) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * One Surefire report per file of the corpus, each with {@code testCases} test cases of which one
+   * fails and one is skipped. Returns the directory of the reports.
+   */
+  public static Path surefire(Corpus corpus, int testCases) throws IOException {
+    Path directory = corpus.baseDir().resolve("target/surefire-reports");
+    for (int i = 0; i < corpus.size(); i++) {
+      String suite = "org.example.generated." + GroovySources.className(i) + "Spec";
+      StringBuilder xml = new StringBuilder();
+      xml.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+      xml.append("<testsuite name='")
+          .append(suite)
+          .append("' tests='")
+          .append(testCases)
+          .append("' failures='1' errors='0' skipped='1' time='1.5'>\n");
+      for (int t = 0; t < testCases; t++) {
+        xml.append("  <testcase classname='")
+            .append(suite)
+            .append("' name='counts key ")
+            .append(t)
+            .append("' time='0.0")
+            .append(t % 10)
+            .append('\'');
+        if (t == 0) {
+          xml.append(">\n    <failure message='Condition not satisfied' type='")
+              .append("org.spockframework.runtime.SpockComparisonFailure'>")
+              .append("Condition not satisfied:\n\ncount('a') == 1\n|\n0\n\n")
+              .append("\tat ")
+              .append(suite)
+              .append(".counts key(")
+              .append(GroovySources.className(i))
+              .append("Spec.groovy:12)\n    </failure>\n  </testcase>\n");
+        } else if (t == 1) {
+          xml.append(">\n    <skipped/>\n  </testcase>\n");
+        } else {
+          xml.append("/>\n");
+        }
+      }
+      xml.append("</testsuite>\n");
+      corpus.write("target/surefire-reports/TEST-" + suite + ".xml", xml.toString());
+    }
+    return directory;
+  }
+
+  /**
+   * Compiled classes of the corpus under {@code target/classes}, and a JaCoCo execution data file
+   * in which every other probe of each class was hit. Returns the execution data file.
+   */
+  public static Path jacoco(Corpus corpus) throws IOException {
+    Path exec = corpus.baseDir().resolve("target/jacoco.exec");
+    Files.createDirectories(exec.getParent());
+    try (OutputStream out = Files.newOutputStream(exec)) {
+      ExecutionDataWriter writer = new ExecutionDataWriter(out);
+      writer.visitSessionInfo(new SessionInfo("benchmark", 0L, 0L));
+      for (int i = 0; i < corpus.size(); i++) {
+        String className = Corpus.PACKAGE_PATH + "/" + GroovySources.className(i);
+        byte[] bytes = classFile(i);
+        corpus.write("target/classes/" + className + ".class", bytes);
+        boolean[] probes = new boolean[probeCount(bytes)];
+        for (int p = 0; p < probes.length; p += 2) {
+          probes[p] = true;
+        }
+        writer.visitClassExecution(new ExecutionData(CRC64.classId(bytes), className, probes));
+      }
+      writer.flush();
+    }
+    return exec;
+  }
+
+  /**
+   * The class {@link GroovySources#generateClass(int)} compiles to, reduced to what JaCoCo looks
+   * at: a constructor and a few methods with a condition each, mapped to lines of the source.
+   */
+  private static byte[] classFile(int index) {
+    String name = Corpus.PACKAGE_PATH + "/" + GroovySources.className(index);
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+    writer.visit(
+        Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+    writer.visitSource(GroovySources.className(index) + ".groovy", null);
+
+    MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    init.visitCode();
+    Label start = new Label();
+    init.visitLabel(start);
+    init.visitLineNumber(14, start);
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+
+    for (int m = 0; m < METHODS; m++) {
+      int line = 18 + m * 4;
+      MethodVisitor method =
+          writer.visitMethod(Opcodes.ACC_PUBLIC, "method" + m, "(I)I", null, null);
+      method.visitCode();
+      Label condition = new Label();
+      Label then = new Label();
+      Label otherwise = new Label();
+      method.visitLabel(condition);
+      method.visitLineNumber(line, condition);
+      method.visitVarInsn(Opcodes.ILOAD, 1);
+      method.visitIntInsn(Opcodes.BIPUSH, m);
+      method.visitJumpInsn(Opcodes.IF_ICMPLE, otherwise);
+      method.visitLabel(then);
+      method.visitLineNumber(line + 1, then);
+      method.visitVarInsn(Opcodes.ILOAD, 1);
+      method.visitInsn(Opcodes.ICONST_1);
+      method.visitInsn(Opcodes.ISUB);
+      method.visitInsn(Opcodes.IRETURN);
+      method.visitLabel(otherwise);
+      method.visitLineNumber(line + 2, otherwise);
+      method.visitVarInsn(Opcodes.ILOAD, 1);
+      method.visitInsn(Opcodes.ICONST_1);
+      method.visitInsn(Opcodes.IADD);
+      method.visitInsn(Opcodes.IRETURN);
+      method.visitMaxs(0, 0);
+      method.visitEnd();
+    }
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  /** Number of probes JaCoCo inserts in the class, which its execution data must match. */
+  private static int probeCount(byte[] bytes) {
+    AtomicInteger count = new AtomicInteger();
+    ClassProbesVisitor counter =
+        new ClassProbesVisitor() {
+          @Override
+          public MethodProbesVisitor visitMethod(
+              int access, String name, String desc, String signature, String[] exceptions) {
+            return null;
+          }
+
+          @Override
+          public void visitTotalProbeCount(int probes) {
+            count.set(probes);
+          }
+        };
+    new ClassReader(bytes).accept(new ClassProbesAdapter(counter, false), 0);
+    return count.get();
+  }
+}
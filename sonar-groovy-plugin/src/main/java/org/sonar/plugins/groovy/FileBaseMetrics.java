@@ -0,0 +1,171 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy;
+
+import groovyjarjarantlr.Token;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.BitSet;
+import org.codehaus.groovy.antlr.parser.GroovyTokenTypes;
+import org.sonar.plugins.groovy.foundation.GroovyTokenVisitor;
+
+/**
+ * Lines of code and comment lines of a single file, computed from its tokens. One instance is
+ * created per file, so that files can be processed concurrently.
+ */
+class FileBaseMetrics implements GroovyTokenVisitor {
+
+  private static final String[] EMPTY_COMMENT_LINES = {"/**", "/*", "*", "*/", "//"};
+
+  private final boolean ignoreHeaderComments;
+  private final BitSet nclocLines = new BitSet();
+
+  private int loc = 0;
+  private int comments = 0;
+  private int currentLine = 0;
+  private boolean complete = false;
+
+  FileBaseMetrics(boolean ignoreHeaderComments) {
+    this.ignoreHeaderComments = ignoreHeaderComments;
+  }
+
+  @Override
+  public void visitToken(Token token, int nextTokenLine) {
+    int tokenType = token.getType();
+    int tokenLine = token.getLine();
+    if (isComment(tokenType)) {
+      if (isNotHeaderComment(tokenLine)) {
+        comments += nextTokenLine - tokenLine + 1 - numberEmptyLines(token.getText());
+      }
+    } else if (isNotWhitespace(tokenType) && tokenLine != currentLine) {
+      loc++;
+      nclocLines.set(tokenLine);
+      currentLine = tokenLine;
+    }
+  }
+
+  int loc() {
+    return loc;
+  }
+
+  int comments() {
+    return comments;
+  }
+
+  BitSet nclocLines() {
+    return nclocLines;
+  }
+
+  /** Whether the whole file has been lexed, so that loc and comments are meaningful. */
+  boolean isComplete() {
+    return complete;
+  }
+
+  void markComplete() {
+    complete = true;
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(loc);
+    out.writeInt(comments);
+    out.writeBoolean(complete);
+    long[] words = nclocLines.toLongArray();
+    out.writeInt(words.length);
+    for (long word : words) {
+      out.writeLong(word);
+    }
+  }
+
+  /** Reads metrics written by {@link #write}. They can be saved, but not visit further tokens. */
+  static FileBaseMetrics read(DataInput in) throws IOException {
+    FileBaseMetrics metrics = new FileBaseMetrics(false);
+    metrics.loc = in.readInt();
+    metrics.comments = in.readInt();
+    metrics.complete = in.readBoolean();
+    long[] words = new long[in.readInt()];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = in.readLong();
+    }
+    metrics.nclocLines.or(BitSet.valueOf(words));
+    return metrics;
+  }
+
+  /**
+   * Counts the lines of a comment that hold nothing but comment delimiters. Works on the token text
+   * itself, so that the file does not need to be read as a list of lines.
+   */
+  static int numberEmptyLines(String text) {
+    int emptyLines = 0;
+    int length = text.length();
+    int lineStart = 0;
+    while (lineStart <= length) {
+      int lineEnd = lineStart;
+      while (lineEnd < length && text.charAt(lineEnd) != '\n' && text.charAt(lineEnd) != '\r') {
+        lineEnd++;
+      }
+      if (isEmptyCommentLine(text, lineStart, lineEnd)) {
+        emptyLines++;
+      }
+      boolean crLf =
+          lineEnd + 1 < length && text.charAt(lineEnd) == '\r' && text.charAt(lineEnd + 1) == '\n';
+      if (crLf) {
+        lineEnd++;
+      }
+      lineStart = lineEnd + 1;
+    }
+    return emptyLines;
+  }
+
+  private static boolean isEmptyCommentLine(String text, int lineStart, int lineEnd) {
+    // Same whitespace as String.trim()
+    int start = lineStart;
+    int end = lineEnd;
+    while (start < end && text.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && text.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    for (String emptyCommentLine : EMPTY_COMMENT_LINES) {
+      if (emptyCommentLine.length() == end - start
+          && text.regionMatches(start, emptyCommentLine, 0, end - start)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isNotHeaderComment(int tokenLine) {
+    return !(tokenLine == 1 && ignoreHeaderComments);
+  }
+
+  private static boolean isNotWhitespace(int tokenType) {
+    return !(tokenType == GroovyTokenTypes.WS
+        || tokenType == GroovyTokenTypes.STRING_NL
+        || tokenType == GroovyTokenTypes.ONE_NL
+        || tokenType == GroovyTokenTypes.NLS);
+  }
+
+  private static boolean isComment(int tokenType) {
+    return tokenType == GroovyTokenTypes.SL_COMMENT
+        || tokenType == GroovyTokenTypes.SH_COMMENT
+        || tokenType == GroovyTokenTypes.ML_COMMENT;
+  }
+}
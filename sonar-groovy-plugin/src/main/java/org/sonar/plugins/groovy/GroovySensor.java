@@ -18,24 +18,22 @@
  */
 package org.sonar.plugins.groovy;
 
-import groovyjarjarantlr.Token;
-import groovyjarjarantlr.TokenStream;
 import groovyjarjarantlr.TokenStreamException;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
-import org.apache.commons.io.IOUtils;
-import org.codehaus.groovy.antlr.GroovySourceToken;
-import org.codehaus.groovy.antlr.parser.GroovyLexer;
-import org.codehaus.groovy.antlr.parser.GroovyTokenTypes;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.gmetrics.result.MetricResult;
 import org.gmetrics.result.NumberMetricResult;
 import org.gmetrics.resultsnode.ClassResultsNode;
@@ -56,9 +54,14 @@ import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
 import org.sonar.plugins.groovy.foundation.GroovyHighlighterAndTokenizer;
+import org.sonar.plugins.groovy.foundation.GroovyTokenPipeline;
 import org.sonar.plugins.groovy.gmetrics.GMetricsSourceAnalyzer;
+import org.sonar.plugins.groovy.utils.AnalysisCache;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
+import org.sonar.plugins.groovy.utils.ParallelTasks;
 
 public class GroovySensor implements Sensor {
 
@@ -68,25 +71,20 @@ public class GroovySensor implements Sensor {
 
   private static final String CYCLOMATIC_COMPLEXITY_METRIC_NAME = "CyclomaticComplexity";
 
-  private static final Set<String> EMPTY_COMMENT_LINES =
-      Arrays.stream(new String[] {"/**", "/*", "*", "*/", "//"}).collect(Collectors.toSet());
-
   private final Configuration settings;
   private final FileLinesContextFactory fileLinesContextFactory;
   private final GroovyFileSystem groovyFileSystem;
-
-  private int loc = 0;
-  private int comments = 0;
-  private int currentLine = 0;
-  private FileLinesContext fileLinesContext;
+  private final GroovyAstCache astCache;
 
   public GroovySensor(
       Configuration settings,
       FileLinesContextFactory fileLinesContextFactory,
-      FileSystem fileSystem) {
+      FileSystem fileSystem,
+      GroovyAstCache astCache) {
     this.settings = settings;
     this.fileLinesContextFactory = fileLinesContextFactory;
     this.groovyFileSystem = new GroovyFileSystem(fileSystem);
+    this.astCache = astCache;
   }
 
   @Override
@@ -96,49 +94,53 @@ public class GroovySensor implements Sensor {
 
   @Override
   public void execute(SensorContext context) {
-    if (groovyFileSystem.hasGroovyFiles()) {
-      List<InputFile> inputFiles = groovyFileSystem.sourceInputFiles();
-      computeBaseMetrics(context, inputFiles);
-      computeGroovyMetrics(context, inputFiles);
-      highlightFiles(context, groovyFileSystem.groovyInputFiles());
+    try {
+      if (groovyFileSystem.hasGroovyFiles()) {
+        AnalysisProfiler profiler = AnalysisProfiler.create(context, "GroovySensor");
+        try {
+          processFiles(context, groovyFileSystem.groovyInputFiles(), profiler);
+          computeGroovyMetrics(context, groovyFileSystem.sourceInputFiles(), profiler);
+        } finally {
+          profiler.report();
+        }
+      }
+    } finally {
+      astCache.finished(GroovyAstCache.GMETRICS);
     }
   }
 
-  private static void computeGroovyMetrics(SensorContext context, List<InputFile> inputFiles) {
-    GMetricsSourceAnalyzer metricsAnalyzer =
-        new GMetricsSourceAnalyzer(context.fileSystem(), inputFiles);
-
-    metricsAnalyzer.analyze();
-
-    for (Entry<InputFile, List<ClassResultsNode>> entry :
-        metricsAnalyzer.resultsByFile().entrySet()) {
-      processFile(context, entry.getKey(), entry.getValue());
+  private void computeGroovyMetrics(
+      SensorContext context, List<InputFile> inputFiles, AnalysisProfiler profiler) {
+    AnalysisCache cache = new AnalysisCache(context, "gmetrics", "");
+    List<InputFile> filesToAnalyze = new ArrayList<>();
+    for (InputFile inputFile : inputFiles) {
+      ClassMetrics cached = cache.read(inputFile, ClassMetrics::read);
+      if (cached != null) {
+        cached.save(context, inputFile);
+      } else {
+        filesToAnalyze.add(inputFile);
+      }
     }
-  }
 
-  private static void processFile(
-      SensorContext context, InputFile sonarFile, Collection<ClassResultsNode> results) {
-    int classes = 0;
-    int methods = 0;
-    int complexity = 0;
-
-    for (ClassResultsNode result : results) {
-      classes += 1;
+    GMetricsSourceAnalyzer metricsAnalyzer =
+        new GMetricsSourceAnalyzer(
+            filesToAnalyze,
+            astCache,
+            Groovy.analysisThreads(context.config()),
+            profiler,
+            Groovy.fileTimeBudgetMillis(context.config()));
 
-      methods += result.getChildren().size();
+    metricsAnalyzer.analyze();
 
-      Optional<MetricResult> cyclomaticComplexity =
-          getCyclomaticComplexity(result.getMetricResults());
-      if (cyclomaticComplexity.isPresent()) {
-        int value =
-            (Integer) ((NumberMetricResult) cyclomaticComplexity.get()).getValues().get("total");
-        complexity += value;
+    Map<InputFile, List<ClassResultsNode>> resultsByFile = metricsAnalyzer.resultsByFile();
+    for (InputFile inputFile : filesToAnalyze) {
+      ClassMetrics metrics =
+          ClassMetrics.of(resultsByFile.getOrDefault(inputFile, Collections.emptyList()));
+      metrics.save(context, inputFile);
+      if (!metricsAnalyzer.skippedFiles().contains(inputFile)) {
+        cache.write(inputFile, metrics::write);
       }
     }
-
-    saveMetric(context, sonarFile, CoreMetrics.CLASSES, classes);
-    saveMetric(context, sonarFile, CoreMetrics.FUNCTIONS, methods);
-    saveMetric(context, sonarFile, CoreMetrics.COMPLEXITY, complexity);
   }
 
   private static Optional<MetricResult> getCyclomaticComplexity(List<MetricResult> metricResults) {
@@ -149,45 +151,102 @@ public class GroovySensor implements Sensor {
         .findAny();
   }
 
-  private void computeBaseMetrics(SensorContext context, List<InputFile> inputFiles) {
-    for (InputFile groovyFile : inputFiles) {
-      computeBaseMetrics(context, groovyFile);
+  private void processFiles(
+      SensorContext context, List<InputFile> inputFiles, AnalysisProfiler profiler) {
+    boolean ignoreHeaderComments = settings.getBoolean(IGNORE_HEADER_COMMENTS).orElse(true);
+    AnalysisCache cache =
+        new AnalysisCache(context, "lexer", IGNORE_HEADER_COMMENTS + "=" + ignoreHeaderComments);
+    // Files are lexed concurrently, but SensorContext is only accessed under this lock
+    Object saveLock = new Object();
+    ParallelTasks.forEach(
+        inputFiles,
+        Groovy.analysisThreads(settings),
+        groovyFile -> {
+          LexedFile cached;
+          LexedFile lexed;
+          try (AnalysisProfiler.Measure measure = profiler.start("lex").file(groovyFile.path())) {
+            cached =
+                cache.read(groovyFile, in -> LexedFile.read(context, saveLock, groovyFile, in));
+            lexed =
+                cached != null
+                    ? cached
+                    : lex(
+                        context,
+                        saveLock,
+                        groovyFile,
+                        cache.isEnabled() ? cache : null,
+                        ignoreHeaderComments);
+          }
+          synchronized (saveLock) {
+            if (groovyFile.type() == InputFile.Type.MAIN) {
+              try (AnalysisProfiler.Measure measure = profiler.start("metrics").files(1)) {
+                saveBaseMetrics(context, groovyFile, lexed.metrics);
+              }
+            }
+            try (AnalysisProfiler.Measure measure = profiler.start("highlight").files(1)) {
+              lexed.highlighter.save(context);
+            }
+          }
+          try {
+            if (cached == null && lexed.complete) {
+              cache.write(groovyFile, lexed::write);
+            }
+          } finally {
+            lexed.highlighter.discardRecordedTokens();
+          }
+        });
+  }
+
+  private static LexedFile lex(
+      SensorContext context,
+      Object saveLock,
+      InputFile groovyFile,
+      @Nullable AnalysisCache tokenCache,
+      boolean ignoreHeaderComments) {
+    GroovyHighlighterAndTokenizer highlighter = new GroovyHighlighterAndTokenizer(groovyFile);
+    // Highlighting and CPD tokens are filled by this worker while lexing
+    highlighter.stream(context, saveLock, tokenCache);
+    if (groovyFile.type() == InputFile.Type.MAIN) {
+      // Base metrics, highlighting and CPD tokens share a single lexing pass
+      FileBaseMetrics metrics = computeBaseMetrics(groovyFile, highlighter, ignoreHeaderComments);
+      return new LexedFile(highlighter, metrics, metrics != null && metrics.isComplete());
     }
+    return new LexedFile(highlighter, null, highlighter.lex());
   }
 
-  private void computeBaseMetrics(SensorContext context, InputFile groovyFile) {
-    loc = 0;
-    comments = 0;
-    currentLine = 0;
-    fileLinesContext = fileLinesContextFactory.createFor(groovyFile);
+  @CheckForNull
+  private static FileBaseMetrics computeBaseMetrics(
+      InputFile groovyFile,
+      GroovyHighlighterAndTokenizer highlighter,
+      boolean ignoreHeaderComments) {
+    FileBaseMetrics metrics = null;
     try (InputStreamReader streamReader =
         new InputStreamReader(groovyFile.inputStream(), groovyFile.charset())) {
-      List<String> lines = IOUtils.readLines(groovyFile.inputStream(), groovyFile.charset());
-      GroovyLexer groovyLexer = new GroovyLexer(streamReader);
-      groovyLexer.setWhitespaceIncluded(true);
-      TokenStream tokenStream = groovyLexer.plumb();
-      Token token = tokenStream.nextToken();
-      Token nextToken = tokenStream.nextToken();
-      while (nextToken.getType() != Token.EOF_TYPE) {
-        handleToken(token, nextToken.getLine(), lines);
-        token = nextToken;
-        nextToken = tokenStream.nextToken();
-      }
-      handleToken(token, nextToken.getLine(), lines);
-      saveMetric(context, groovyFile, CoreMetrics.NCLOC, loc);
-      saveMetric(context, groovyFile, CoreMetrics.COMMENT_LINES, comments);
+      metrics = new FileBaseMetrics(ignoreHeaderComments);
+      GroovyTokenPipeline.lex(streamReader, metrics, highlighter);
+      metrics.markComplete();
     } catch (TokenStreamException e) {
       LOG.error("Unexpected token when lexing file: {}", groovyFile, e);
     } catch (IOException e) {
       LOG.error("Unable to read file: {}", groovyFile, e);
     }
-    fileLinesContext.save();
+    return metrics;
   }
 
-  private static void highlightFiles(SensorContext context, List<InputFile> inputFiles) {
-    for (InputFile inputFile : inputFiles) {
-      new GroovyHighlighterAndTokenizer(inputFile).processFile(context);
+  private void saveBaseMetrics(
+      SensorContext context, InputFile groovyFile, @Nullable FileBaseMetrics metrics) {
+    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(groovyFile);
+    if (metrics != null) {
+      BitSet nclocLines = metrics.nclocLines();
+      for (int line = nclocLines.nextSetBit(0); line >= 0; line = nclocLines.nextSetBit(line + 1)) {
+        fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1);
+      }
+      if (metrics.isComplete()) {
+        saveMetric(context, groovyFile, CoreMetrics.NCLOC, metrics.loc());
+        saveMetric(context, groovyFile, CoreMetrics.COMMENT_LINES, metrics.comments());
+      }
     }
+    fileLinesContext.save();
   }
 
   private static <T extends Serializable> void saveMetric(
@@ -195,55 +254,94 @@ public class GroovySensor implements Sensor {
     context.<T>newMeasure().withValue(value).forMetric(metric).on(inputComponent).save();
   }
 
-  private void handleToken(Token token, int nextTokenLine, List<String> lines) {
-    int tokenType = token.getType();
-    int tokenLine = token.getLine();
-    if (isComment(tokenType)) {
-      if (isNotHeaderComment(tokenLine)) {
-        comments += nextTokenLine - tokenLine + 1 - numberEmptyLines(token, lines);
+  /** Highlighting, CPD tokens and, for main files, base metrics of a single file. */
+  private static class LexedFile {
+    final GroovyHighlighterAndTokenizer highlighter;
+    @Nullable final FileBaseMetrics metrics;
+    final boolean complete;
+
+    LexedFile(
+        GroovyHighlighterAndTokenizer highlighter,
+        @Nullable FileBaseMetrics metrics,
+        boolean complete) {
+      this.highlighter = highlighter;
+      this.metrics = metrics;
+      this.complete = complete;
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeBoolean(metrics != null);
+      if (metrics != null) {
+        metrics.write(out);
       }
-    } else if (isNotWhitespace(tokenType) && tokenLine != currentLine) {
-      loc++;
-      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, tokenLine, 1);
-      currentLine = tokenLine;
+      highlighter.writeTokens(out);
     }
-  }
 
-  private int numberEmptyLines(Token token, List<String> lines) {
-    List<String> relatedLines = getLinesFromToken(lines, (GroovySourceToken) token);
-    long emptyLines =
-        relatedLines.stream().map(String::trim).filter(EMPTY_COMMENT_LINES::contains).count();
-    return (int) emptyLines;
+    static LexedFile read(
+        SensorContext context, Object saveLock, InputFile groovyFile, DataInput in)
+        throws IOException {
+      boolean hasMetrics = in.readBoolean();
+      if (hasMetrics != (groovyFile.type() == InputFile.Type.MAIN)) {
+        throw new IOException("Cached results do not match the type of " + groovyFile);
+      }
+      FileBaseMetrics metrics = hasMetrics ? FileBaseMetrics.read(in) : null;
+      GroovyHighlighterAndTokenizer highlighter = new GroovyHighlighterAndTokenizer(groovyFile);
+      highlighter.stream(context, saveLock, null);
+      highlighter.readTokens(in);
+      return new LexedFile(highlighter, metrics, true);
+    }
   }
 
-  private static List<String> getLinesFromToken(List<String> lines, GroovySourceToken gst) {
-    List<String> newLines = new ArrayList<>(lines.subList(gst.getLine() - 1, gst.getLineLast()));
+  /** Class, function and complexity measures of a single file, as computed by GMetrics. */
+  private static class ClassMetrics {
+    final int classes;
+    final int methods;
+    final int complexity;
 
-    int lastLineIndex = newLines.size() - 1;
-    String lastLine = newLines.get(lastLineIndex).substring(0, gst.getColumnLast() - 1);
-    newLines.set(lastLineIndex, lastLine);
+    ClassMetrics(int classes, int methods, int complexity) {
+      this.classes = classes;
+      this.methods = methods;
+      this.complexity = complexity;
+    }
 
-    String firstLine = newLines.get(0).substring(gst.getColumn() - 1);
-    newLines.set(0, firstLine);
+    static ClassMetrics of(Collection<ClassResultsNode> results) {
+      int classes = 0;
+      int methods = 0;
+      int complexity = 0;
 
-    return newLines;
-  }
+      for (ClassResultsNode result : results) {
+        classes += 1;
 
-  private boolean isNotHeaderComment(int tokenLine) {
-    return !(tokenLine == 1 && settings.getBoolean(IGNORE_HEADER_COMMENTS).orElse(true));
-  }
+        methods += result.getChildren().size();
 
-  private static boolean isNotWhitespace(int tokenType) {
-    return !(tokenType == GroovyTokenTypes.WS
-        || tokenType == GroovyTokenTypes.STRING_NL
-        || tokenType == GroovyTokenTypes.ONE_NL
-        || tokenType == GroovyTokenTypes.NLS);
-  }
+        Optional<MetricResult> cyclomaticComplexity =
+            getCyclomaticComplexity(result.getMetricResults());
+        if (cyclomaticComplexity.isPresent()) {
+          int value =
+              (Integer) ((NumberMetricResult) cyclomaticComplexity.get()).getValues().get("total");
+          complexity += value;
+        }
+      }
+      return new ClassMetrics(classes, methods, complexity);
+    }
 
-  private static boolean isComment(int tokenType) {
-    return tokenType == GroovyTokenTypes.SL_COMMENT
-        || tokenType == GroovyTokenTypes.SH_COMMENT
-        || tokenType == GroovyTokenTypes.ML_COMMENT;
+    void save(SensorContext context, InputFile sonarFile) {
+      if (classes > 0) {
+        saveMetric(context, sonarFile, CoreMetrics.CLASSES, classes);
+        saveMetric(context, sonarFile, CoreMetrics.FUNCTIONS, methods);
+        saveMetric(context, sonarFile, CoreMetrics.COMPLEXITY, complexity);
+      }
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeInt(classes);
+      out.writeInt(methods);
+      out.writeInt(complexity);
+    }
+
+    static ClassMetrics read(DataInput in) throws IOException {
+      return new ClassMetrics(in.readInt(), in.readInt(), in.readInt());
+    }
   }
 
   @Override
@@ -38,6 +38,8 @@ import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.foundation.SourcePathIndex;
 import org.sonar.plugins.groovy.utils.StaxParser;
 
 public class CoberturaReportParser {
@@ -45,11 +47,12 @@ public class CoberturaReportParser {
   private static final Logger LOG = Loggers.get(CoberturaReportParser.class);
 
   private final SensorContext context;
-  private final FileSystem fileSystem;
+  private final GroovyFileSystem groovyFileSystem;
+  private SourcePathIndex pathIndex;
 
   public CoberturaReportParser(SensorContext context, final FileSystem fileSystem) {
     this.context = context;
-    this.fileSystem = fileSystem;
+    this.groovyFileSystem = new GroovyFileSystem(fileSystem);
   }
 
   /** Parse a Cobertura xml report and create measures accordingly */
@@ -62,6 +65,8 @@ public class CoberturaReportParser {
   }
 
   private void parsePackages(File xmlFile) throws XMLStreamException {
+    // Paths resolve to files of any language, and those that are not Groovy are reported missing
+    pathIndex = groovyFileSystem.pathIndex();
     StaxParser fileParser =
         new StaxParser(
             rootCursor -> {
@@ -93,11 +98,7 @@ public class CoberturaReportParser {
   @CheckForNull
   private InputFile getInputFile(String filename) {
     try {
-      InputFile file =
-          fileSystem.inputFile(fileSystem.predicates().matchesPathPattern("**/" + filename));
-      if (file != null) {
-        return file;
-      }
+      return pathIndex.inputFile(filename);
     } catch (IllegalArgumentException e) {
       LOG.warn("Multiple matches for coverage of '{}' found", filename);
     }
@@ -33,6 +33,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
 
 public class CoberturaSensor implements Sensor {
   public static final String COBERTURA_REPORT_PATH = "sonar.groovy.cobertura.reportPath";
@@ -76,7 +77,13 @@ public class CoberturaSensor implements Sensor {
       }
       if (xmlFile.exists()) {
         LOG.info("Analyzing Cobertura report: " + reportPath);
-        new CoberturaReportParser(context, fileSystem).parseReport(xmlFile);
+        AnalysisProfiler profiler =
+            AnalysisProfiler.create(settings, fileSystem, "CoberturaSensor");
+        try (AnalysisProfiler.Measure measure = profiler.start("report").file(xmlFile.toPath())) {
+          new CoberturaReportParser(context, fileSystem).parseReport(xmlFile);
+        } finally {
+          profiler.report();
+        }
       } else {
         LOG.info("Cobertura xml report not found: " + reportPath);
       }
@@ -0,0 +1,84 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Keys of the active CodeNarc rules by CodeNarc rule name, resolved once per analysis rather than
+ * once per violation. Names without an active rule are counted, to be reported in a single
+ * warning.
+ *
+ * <p>Not thread-safe: violations are expected to be reported by the sensor thread only.
+ */
+class ActiveRuleKeys {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ActiveRuleKeys.class);
+
+  private final Map<String, RuleKey> ruleKeysByName = new HashMap<>();
+  private final Map<String, Integer> unknownRules = new HashMap<>();
+
+  ActiveRuleKeys(ActiveRules activeRules) {
+    String repository = CodeNarcRulesDefinition.REPOSITORY_KEY;
+    for (ActiveRule activeRule : activeRules.findByRepository(repository)) {
+      if (activeRule.internalKey() != null) {
+        ruleKeysByName.put(activeRule.internalKey(), activeRule.ruleKey());
+      }
+    }
+  }
+
+  /** @return the key of the active rule named {@code ruleName}, or null if it is not active */
+  @CheckForNull
+  RuleKey ruleKey(@Nullable String ruleName) {
+    RuleKey ruleKey = ruleKeysByName.get(ruleName);
+    if (ruleKey == null) {
+      unknownRules.merge(ruleName, 1, Integer::sum);
+    }
+    return ruleKey;
+  }
+
+  /** Logs the violations of rules that are not active, if any, grouped by rule. */
+  void logUnknownRules() {
+    if (!unknownRules.isEmpty()) {
+      int violations = unknownRules.values().stream().mapToInt(Integer::intValue).sum();
+      LOG.warn(
+          "No such rule in SonarQube, so {} violation(s) from CodeNarc will be ignored: {}",
+          violations,
+          unknownRules.entrySet().stream()
+              .sorted(Map.Entry.comparingByKey(Comparator.nullsFirst(Comparator.naturalOrder())))
+              .map(rule -> rule.getKey() + " (" + rule.getValue() + ")")
+              .collect(Collectors.joining(", ")));
+    }
+  }
+
+  // VisibleForTesting
+  Map<String, Integer> unknownRules() {
+    return unknownRules;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.rule.ActiveRules;
+
+/**
+ * Keeps the CodeNarc rule sets of the profile analyzed last, so that the next module analyzed with
+ * the same profile reuses the rule sets released by the previous one instead of constructing them
+ * again. Rule instances live no longer than the analysis.
+ */
+@ScannerSide
+public class CodeNarcRuleSetCache {
+
+  private final AtomicReference<CodeNarcRuleSets> lastProfile = new AtomicReference<>();
+
+  /**
+   * @param fingerprint identifies the active rules and their parameters
+   * @return the rule sets of the last analyzed profile if it had the same fingerprint, or those of
+   *     the given active rules, which replace them
+   */
+  CodeNarcRuleSets forProfile(ActiveRules activeRules, String fingerprint) {
+    CodeNarcRuleSets last = lastProfile.get();
+    if (last != null && last.fingerprint().equals(fingerprint)) {
+      return last;
+    }
+    CodeNarcRuleSets ruleSets = new CodeNarcRuleSets(activeRules, fingerprint);
+    lastProfile.set(ruleSets);
+    return ruleSets;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.commons.lang3.StringUtils;
+import org.codenarc.rule.Rule;
+import org.codenarc.ruleset.ListRuleSet;
+import org.codenarc.ruleset.PropertiesFileRuleSetConfigurer;
+import org.codenarc.ruleset.RuleSet;
+import org.codenarc.util.PropertyUtil;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+
+/**
+ * CodeNarc rule sets of a quality profile, built from the active rules themselves rather than from
+ * an exported ruleset file. They are kept by the {@link CodeNarcRuleSetCache} of the analysis.
+ *
+ * <p>A rule set is used by one thread at a time: {@link #acquire()} hands out an idle rule set, or
+ * a new one when all of them are in use.
+ */
+final class CodeNarcRuleSets {
+
+  private final String fingerprint;
+  private final List<RuleTemplate> templates = new ArrayList<>();
+  private final Queue<RuleSet> idleRuleSets = new ConcurrentLinkedQueue<>();
+
+  CodeNarcRuleSets(ActiveRules activeRules, String fingerprint) {
+    this.fingerprint = fingerprint;
+    for (ActiveRule activeRule :
+        activeRules.findByRepository(CodeNarcRulesDefinition.REPOSITORY_KEY)) {
+      templates.add(new RuleTemplate(activeRule));
+    }
+  }
+
+  String fingerprint() {
+    return fingerprint;
+  }
+
+  /** @return a rule set no other thread uses, until it is {@link #release(RuleSet) released} */
+  RuleSet acquire() {
+    RuleSet ruleSet = idleRuleSets.poll();
+    return ruleSet != null ? ruleSet : newRuleSet();
+  }
+
+  /** Makes a rule set from {@link #acquire()} available again, once its analysis is over. */
+  void release(RuleSet ruleSet) {
+    idleRuleSets.add(ruleSet);
+  }
+
+  RuleSet newRuleSet() {
+    List<Rule> rules = new ArrayList<>(templates.size());
+    for (RuleTemplate template : templates) {
+      rules.add(template.newRule());
+    }
+    RuleSet ruleSet = new ListRuleSet(rules);
+    new PropertiesFileRuleSetConfigurer().configure(ruleSet);
+    return ruleSet;
+  }
+
+  private static class RuleTemplate {
+    private final Class<? extends Rule> ruleClass;
+    private final Map<String, String> properties = new LinkedHashMap<>();
+
+    RuleTemplate(ActiveRule activeRule) {
+      String className = activeRule.ruleKey().rule();
+      // SONARGROOV-40 : key of rule having null parameters have been suffixed with ".fixed"
+      if (className.endsWith(".fixed")) {
+        className = className.substring(0, className.length() - ".fixed".length());
+      }
+      try {
+        ruleClass =
+            Class.forName(className, true, Rule.class.getClassLoader()).asSubclass(Rule.class);
+      } catch (ClassNotFoundException | ClassCastException e) {
+        throw new IllegalStateException("Unknown CodeNarc rule class: " + className, e);
+      }
+      for (Map.Entry<String, String> param : activeRule.params().entrySet()) {
+        if (StringUtils.isNotBlank(param.getValue())) {
+          properties.put(param.getKey(), param.getValue());
+        }
+      }
+    }
+
+    Rule newRule() {
+      Rule rule;
+      try {
+        rule = ruleClass.getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Can not create CodeNarc rule: " + ruleClass.getName(), e);
+      }
+      for (Map.Entry<String, String> property : properties.entrySet()) {
+        PropertyUtil.setPropertyFromString(rule, property.getKey(), property.getValue());
+      }
+      return rule;
+    }
+  }
+}
@@ -19,21 +19,24 @@
 package org.sonar.plugins.groovy.codenarc;
 
 import ch.qos.logback.classic.Level;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import javax.annotation.CheckForNull;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
-import org.apache.commons.io.FileUtils;
-import org.codenarc.CodeNarcRunner;
 import org.codenarc.rule.Violation;
+import org.codenarc.ruleset.RuleSet;
 import org.codenarc.source.AbstractSourceCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,7 +52,11 @@ import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.plugins.groovy.codenarc.CodeNarcXMLParser.CodeNarcViolation;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.AnalysisCache;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
+import org.sonar.plugins.groovy.utils.ParallelTasks;
 
 public class CodeNarcSensor implements Sensor {
 
@@ -58,8 +65,12 @@ public class CodeNarcSensor implements Sensor {
 
   private static final Logger LOG = LoggerFactory.getLogger(CodeNarcSensor.class);
 
+  private static final int VIOLATION_QUEUE_CAPACITY = 1024;
+
   private final ActiveRules activeRules;
   private final GroovyFileSystem groovyFileSystem;
+  private final GroovyAstCache astCache;
+  private final CodeNarcRuleSetCache ruleSetCache;
 
   static {
     // Hide CodeNarc logs
@@ -68,9 +79,15 @@ public class CodeNarcSensor implements Sensor {
     codeNarcLogger.setLevel(Level.ERROR);
   }
 
-  public CodeNarcSensor(ActiveRules activeRules, GroovyFileSystem groovyFileSystem) {
+  public CodeNarcSensor(
+      ActiveRules activeRules,
+      GroovyFileSystem groovyFileSystem,
+      GroovyAstCache astCache,
+      CodeNarcRuleSetCache ruleSetCache) {
     this.activeRules = activeRules;
     this.groovyFileSystem = groovyFileSystem;
+    this.astCache = astCache;
+    this.ruleSetCache = ruleSetCache;
   }
 
   @Override
@@ -83,6 +100,18 @@ public class CodeNarcSensor implements Sensor {
 
   @Override
   public void execute(SensorContext context) {
+    AnalysisProfiler profiler = AnalysisProfiler.create(context, "CodeNarcSensor");
+    ActiveRuleKeys ruleKeys = new ActiveRuleKeys(context.activeRules());
+    try {
+      execute(context, ruleKeys, profiler);
+    } finally {
+      ruleKeys.logUnknownRules();
+      profiler.report();
+      astCache.finished(GroovyAstCache.CODENARC);
+    }
+  }
+
+  private void execute(SensorContext context, ActiveRuleKeys ruleKeys, AnalysisProfiler profiler) {
     // Should we reuse existing report from CodeNarc ?
     if (context.config().hasKey(CODENARC_REPORT_PATHS)) {
       // Yes
@@ -103,30 +132,38 @@ public class CodeNarcSensor implements Sensor {
         }
       }
       if (!reports.isEmpty()) {
-        parseReport(context, reports);
+        parseReport(context, reports, ruleKeys, profiler);
       }
     } else {
       // No, run CodeNarc
-      runCodeNarc(context);
+      runCodeNarc(context, ruleKeys, profiler);
     }
   }
 
-  private void parseReport(SensorContext context, List<File> reports) {
-    for (File report : reports) {
-      Collection<CodeNarcViolation> violations =
-          CodeNarcXMLParser.parse(report, context.fileSystem());
-      for (CodeNarcViolation violation : violations) {
-        ActiveRule activeRule =
-            context
-                .activeRules()
-                .findByInternalKey(CodeNarcRulesDefinition.REPOSITORY_KEY, violation.getRuleName());
-        if (activeRule != null) {
-          InputFile inputFile = inputFileFor(context, violation.getFilename());
-          insertIssue(context, violation, activeRule.ruleKey(), inputFile);
-        } else {
-          LOG.warn("No such rule in SonarQube, so violation from CodeNarc will be ignored");
-        }
-      }
+  private static void parseReport(
+      SensorContext context,
+      List<File> reports,
+      ActiveRuleKeys ruleKeys,
+      AnalysisProfiler profiler) {
+    // Reports are read concurrently, but issues are only saved by this thread, as soon as they are
+    // read, so that the violations of a report are never all in memory
+    ParallelTasks.produceAndConsume(
+        reports,
+        Groovy.analysisThreads(context.config()),
+        VIOLATION_QUEUE_CAPACITY,
+        (File report, Consumer<CodeNarcViolation> violations) -> {
+          try (AnalysisProfiler.Measure measure = profiler.start("report").file(report.toPath())) {
+            CodeNarcXMLParser.parse(report, context.fileSystem(), violations);
+          }
+        },
+        violation -> importViolation(context, ruleKeys, violation));
+  }
+
+  private static void importViolation(
+      SensorContext context, ActiveRuleKeys ruleKeys, CodeNarcViolation violation) {
+    RuleKey ruleKey = ruleKeys.ruleKey(violation.getRuleName());
+    if (ruleKey != null) {
+      insertIssue(context, violation, ruleKey, violation.getInputFile());
     }
   }
 
@@ -157,74 +194,138 @@ public class CodeNarcSensor implements Sensor {
     }
   }
 
-  private void runCodeNarc(SensorContext context) {
+  private void runCodeNarc(
+      SensorContext context, ActiveRuleKeys ruleKeys, AnalysisProfiler profiler) {
     LOG.info("Executing CodeNarc");
 
-    File workdir = new File(context.fileSystem().workDir(), "codenarc");
-    prepareWorkDir(workdir);
-    File codeNarcConfiguration = new File(workdir, "profile.xml");
-    exportCodeNarcConfiguration(codeNarcConfiguration);
-
-    CodeNarcRunner runner = new CodeNarcRunner();
-    runner.setRuleSetFiles("file:" + codeNarcConfiguration.getAbsolutePath());
+    // Violations of unchanged files are replayed, as long as the active rules are the same
+    String fingerprint = activeRulesFingerprint();
+    AnalysisCache cache = new AnalysisCache(context, "codenarc", fingerprint);
+    List<InputFile> filesToAnalyze = new ArrayList<>();
+    for (InputFile inputFile : groovyFileSystem.sourceInputFiles()) {
+      List<CachedViolation> cached = cache.read(inputFile, CodeNarcSensor::readViolations);
+      if (cached != null) {
+        for (CachedViolation violation : cached) {
+          reportViolation(
+              context, ruleKeys, inputFile, violation.ruleName, violation.line, violation.message);
+        }
+      } else {
+        filesToAnalyze.add(inputFile);
+      }
+    }
+    if (filesToAnalyze.isEmpty()) {
+      return;
+    }
 
+    // Rule sets are built from the active rules, and reused by the next module with the same ones
+    CodeNarcRuleSets ruleSets = ruleSetCache.forProfile(activeRules, fingerprint);
+    List<RuleSet> acquired = Collections.synchronizedList(new ArrayList<>());
+    Supplier<RuleSet> workerRuleSets =
+        () -> {
+          RuleSet ruleSet = ruleSets.acquire();
+          acquired.add(ruleSet);
+          return ruleSet;
+        };
     CodeNarcSourceAnalyzer analyzer =
-        new CodeNarcSourceAnalyzer(groovyFileSystem.sourceInputFiles());
-    runner.setSourceAnalyzer(analyzer);
-    runner.execute();
-    reportViolations(context, analyzer.getViolationsByFile());
+        new CodeNarcSourceAnalyzer(
+            filesToAnalyze,
+            Groovy.analysisThreads(context.config()),
+            workerRuleSets,
+            astCache,
+            profiler,
+            Groovy.fileTimeBudgetMillis(context.config()));
+    analyzer.analyze(workerRuleSets.get());
+    if (analyzer.abandonedFiles() == 0) {
+      acquired.forEach(ruleSets::release);
+    }
+    Map<InputFile, List<Violation>> violationsByFile = analyzer.getViolationsByFile();
+    reportViolations(context, ruleKeys, violationsByFile);
+    for (InputFile inputFile : filesToAnalyze) {
+      List<Violation> violations = violationsByFile.get(inputFile);
+      if (violations != null) {
+        cache.write(inputFile, out -> writeViolations(out, violations));
+      }
+    }
   }
 
-  private void reportViolations(
-      SensorContext context, Map<InputFile, List<Violation>> violationsByFile) {
+  private static void reportViolations(
+      SensorContext context,
+      ActiveRuleKeys ruleKeys,
+      Map<InputFile, List<Violation>> violationsByFile) {
     for (Entry<InputFile, List<Violation>> violationsOnFile : violationsByFile.entrySet()) {
       InputFile groovyFile = violationsOnFile.getKey();
       if (groovyFile == null) {
         continue;
       }
       for (Violation violation : violationsOnFile.getValue()) {
-        String ruleKey = violation.getRule().getName();
-        ActiveRule activeRule =
-            context
-                .activeRules()
-                .findByInternalKey(CodeNarcRulesDefinition.REPOSITORY_KEY, ruleKey);
-        if (activeRule != null) {
-          insertIssue(
-              context,
-              activeRule.ruleKey(),
-              violation.getLineNumber(),
-              violation.getMessage(),
-              groovyFile);
-        } else {
-          LOG.warn(
-              "No such rule in SonarQube, so violation from CodeNarc will be ignored: " + ruleKey);
-        }
+        reportViolation(
+            context,
+            ruleKeys,
+            groovyFile,
+            violation.getRule().getName(),
+            violation.getLineNumber(),
+            violation.getMessage());
       }
     }
   }
 
-  @CheckForNull
-  private InputFile inputFileFor(SensorContext context, String path) {
-    return context.fileSystem().inputFile(context.fileSystem().predicates().hasAbsolutePath(path));
+  private static void reportViolation(
+      SensorContext context,
+      ActiveRuleKeys ruleKeys,
+      InputFile groovyFile,
+      String ruleName,
+      @Nullable Integer lineNumber,
+      @Nullable String message) {
+    RuleKey ruleKey = ruleKeys.ruleKey(ruleName);
+    if (ruleKey != null) {
+      insertIssue(context, ruleKey, lineNumber, message, groovyFile);
+    }
   }
 
-  private void exportCodeNarcConfiguration(File file) {
-    try {
-      StringWriter writer = new StringWriter();
-      new CodeNarcProfileExporter(writer).exportProfile(activeRules);
-      FileUtils.writeStringToFile(file, writer.toString());
-    } catch (IOException e) {
-      throw new IllegalStateException("Can not generate CodeNarc configuration file", e);
+  /** Active CodeNarc rules and their parameters, in a stable order. */
+  private String activeRulesFingerprint() {
+    List<ActiveRule> rules =
+        new ArrayList<>(activeRules.findByRepository(CodeNarcRulesDefinition.REPOSITORY_KEY));
+    rules.sort(Comparator.comparing(activeRule -> activeRule.ruleKey().toString()));
+    StringBuilder fingerprint = new StringBuilder();
+    for (ActiveRule activeRule : rules) {
+      fingerprint.append(activeRule.ruleKey()).append(new TreeMap<>(activeRule.params()));
     }
+    return fingerprint.toString();
   }
 
-  private static void prepareWorkDir(File dir) {
-    try {
-      FileUtils.forceMkdir(dir);
-      // directory is cleaned, because Sonar 3.0 will not do this for us
-      FileUtils.cleanDirectory(dir);
-    } catch (IOException e) {
-      throw new IllegalStateException("Cannot create directory: " + dir, e);
+  private static void writeViolations(DataOutput out, List<Violation> violations)
+      throws IOException {
+    out.writeInt(violations.size());
+    for (Violation violation : violations) {
+      AnalysisCache.writeString(out, violation.getRule().getName());
+      Integer line = violation.getLineNumber();
+      out.writeInt(line == null ? -1 : line);
+      AnalysisCache.writeString(out, violation.getMessage());
+    }
+  }
+
+  private static List<CachedViolation> readViolations(DataInput in) throws IOException {
+    int size = in.readInt();
+    List<CachedViolation> violations = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      String ruleName = AnalysisCache.readString(in);
+      int line = in.readInt();
+      String message = AnalysisCache.readString(in);
+      violations.add(new CachedViolation(ruleName, line < 0 ? null : line, message));
+    }
+    return violations;
+  }
+
+  private static class CachedViolation {
+    final String ruleName;
+    @Nullable final Integer line;
+    @Nullable final String message;
+
+    CachedViolation(String ruleName, @Nullable Integer line, @Nullable String message) {
+      this.ruleName = ruleName;
+      this.line = line;
+      this.message = message;
     }
   }
 
@@ -232,6 +333,7 @@ public class CodeNarcSensor implements Sensor {
     return Arrays.asList(
         CodeNarcRulesDefinition.class,
         CodeNarcSensor.class,
+        CodeNarcRuleSetCache.class,
         PropertyDefinition.builder(CODENARC_REPORT_PATHS)
             .name("CodeNarc Reports")
             .description(
@@ -20,53 +20,147 @@ package org.sonar.plugins.groovy.codenarc;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.codenarc.analyzer.AbstractSourceAnalyzer;
 import org.codenarc.results.DirectoryResults;
 import org.codenarc.results.FileResults;
 import org.codenarc.results.Results;
 import org.codenarc.rule.Violation;
 import org.codenarc.ruleset.RuleSet;
-import org.codenarc.source.SourceString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.groovy.foundation.CachedAstSourceString;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
+import org.sonar.plugins.groovy.utils.FileTimer;
+import org.sonar.plugins.groovy.utils.ParallelTasks;
 
 public class CodeNarcSourceAnalyzer extends AbstractSourceAnalyzer {
   private static final Logger LOG = LoggerFactory.getLogger(CodeNarcSourceAnalyzer.class);
 
-  private final Map<InputFile, List<Violation>> violationsByFile = new HashMap<>();
+  private final Map<InputFile, List<Violation>> violationsByFile = new ConcurrentHashMap<>();
   private final List<InputFile> sourceFiles;
+  private final int threads;
+  @Nullable private final Supplier<RuleSet> workerRuleSets;
+  private final GroovyAstCache astCache;
+  private final AnalysisProfiler profiler;
+  private final long fileTimeBudgetMillis;
+  private volatile int abandonedFiles;
 
   public CodeNarcSourceAnalyzer(List<InputFile> sourceFiles) {
+    this(sourceFiles, 1, null, new GroovyAstCache());
+  }
+
+  /**
+   * @param threads number of workers the source files are partitioned across
+   * @param workerRuleSets creates the rule set of each additional worker, so that no rule instance
+   *     is shared between threads
+   * @param astCache ASTs shared with the other analyzers
+   */
+  public CodeNarcSourceAnalyzer(
+      List<InputFile> sourceFiles,
+      int threads,
+      @Nullable Supplier<RuleSet> workerRuleSets,
+      GroovyAstCache astCache) {
+    this(sourceFiles, threads, workerRuleSets, astCache, AnalysisProfiler.disabled(), 0);
+  }
+
+  /**
+   * @param profiler measures the analysis of each file, as the {@code codenarc} phase
+   * @param fileTimeBudgetMillis time after which the analysis of a file is abandoned, or 0 for no
+   *     limit; ignored without {@code workerRuleSets}, as an abandoned analysis would keep using
+   *     the rule set of the next files
+   */
+  public CodeNarcSourceAnalyzer(
+      List<InputFile> sourceFiles,
+      int threads,
+      @Nullable Supplier<RuleSet> workerRuleSets,
+      GroovyAstCache astCache,
+      AnalysisProfiler profiler,
+      long fileTimeBudgetMillis) {
     this.sourceFiles = sourceFiles;
+    this.threads = workerRuleSets == null ? 1 : Math.max(1, threads);
+    this.workerRuleSets = workerRuleSets;
+    this.astCache = astCache;
+    this.profiler = profiler;
+    this.fileTimeBudgetMillis = workerRuleSets == null ? 0 : fileTimeBudgetMillis;
   }
 
   @Override
   public Results analyze(RuleSet ruleSet) {
-    List<FileResults> resultsByFile = processFiles(ruleSet);
+    Map<InputFile, FileResults> resultsByFile = new ConcurrentHashMap<>();
+    List<List<InputFile>> partitions = ParallelTasks.partition(sourceFiles, threads);
+    List<Integer> workers = new ArrayList<>(partitions.size());
+    for (int i = 0; i < partitions.size(); i++) {
+      workers.add(i);
+    }
+    try (FileTimer timer = new FileTimer("CodeNarc", fileTimeBudgetMillis)) {
+      ParallelTasks.forEach(
+          workers,
+          threads,
+          worker -> {
+            RuleSet workerRuleSet = worker == 0 ? ruleSet : workerRuleSets.get();
+            processFiles(partitions.get(worker), workerRuleSet, resultsByFile, timer);
+          });
+      timer.logSlowest();
+      abandonedFiles = timer.skipped();
+    }
+
     DirectoryResults directoryResults = new DirectoryResults(".");
-    resultsByFile.forEach(directoryResults::addChild);
+    for (InputFile inputFile : sourceFiles) {
+      FileResults result = resultsByFile.get(inputFile);
+      if (result != null) {
+        directoryResults.addChild(result);
+      }
+    }
     return directoryResults;
   }
 
-  private List<FileResults> processFiles(RuleSet ruleSet) {
-    List<FileResults> results = new LinkedList<>();
-    for (InputFile inputFile : sourceFiles) {
-      try {
-        List<Violation> violations =
-            collectViolations(new SourceString(inputFile.contents()), ruleSet);
+  private void processFiles(
+      List<InputFile> inputFiles,
+      RuleSet ruleSet,
+      Map<InputFile, FileResults> results,
+      FileTimer timer) {
+    RuleSet fileRuleSet = ruleSet;
+    for (InputFile inputFile : inputFiles) {
+      String source = contents(inputFile);
+      if (source == null) {
+        continue;
+      }
+      RuleSet rules = fileRuleSet;
+      List<Violation> violations = timer.time(inputFile, () -> analyze(inputFile, source, rules));
+      if (violations != null) {
         violationsByFile.put(inputFile, violations);
-        FileResults result = new FileResults(inputFile.uri().toString(), violations);
-        results.add(result);
-      } catch (IOException e) {
-        LOG.error("Could not read input file: " + inputFile.toString(), e);
+        results.put(inputFile, new FileResults(inputFile.uri().toString(), violations));
+      } else {
+        // An abandoned analysis may still run with these rules, so they are not shared with it
+        fileRuleSet = workerRuleSets.get();
       }
     }
-    return results;
+  }
+
+  /** Unreadable files are logged and get no results, without being taken for abandoned ones. */
+  @CheckForNull
+  private static String contents(InputFile inputFile) {
+    try {
+      return inputFile.contents();
+    } catch (IOException e) {
+      LOG.error("Could not read input file: " + inputFile.toString(), e);
+      return null;
+    }
+  }
+
+  private List<Violation> analyze(InputFile inputFile, String source, RuleSet ruleSet) {
+    try (AnalysisProfiler.Measure measure = profiler.start("codenarc").file(inputFile.path())) {
+      return collectViolations(new CachedAstSourceString(source, inputFile, astCache), ruleSet);
+    }
   }
 
   @Override
@@ -74,7 +168,23 @@ public class CodeNarcSourceAnalyzer extends AbstractSourceAnalyzer {
     return new ArrayList<>();
   }
 
+  /**
+   * @return number of files whose analysis exceeded the time budget; their rule sets may still be
+   *     in use by the abandoned analyses
+   */
+  public int abandonedFiles() {
+    return abandonedFiles;
+  }
+
+  /** Violations by file, in the order the files were given to this analyzer. */
   public Map<InputFile, List<Violation>> getViolationsByFile() {
-    return violationsByFile;
+    Map<InputFile, List<Violation>> ordered = new LinkedHashMap<>();
+    for (InputFile inputFile : sourceFiles) {
+      List<Violation> violations = violationsByFile.get(inputFile);
+      if (violations != null) {
+        ordered.put(inputFile, violations);
+      }
+    }
+    return ordered;
   }
 }
@@ -20,34 +20,53 @@ package org.sonar.plugins.groovy.codenarc;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import javax.xml.stream.XMLStreamException;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.staxmate.in.SMHierarchicCursor;
 import org.codehaus.staxmate.in.SMInputCursor;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.plugins.groovy.utils.StaxParser;
 
 public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
 
-  private final List<CodeNarcViolation> result = new ArrayList<>();
+  private final Consumer<CodeNarcViolation> violations;
   private final FileSystem fileSystem;
+  @Nullable private Map<String, InputFile> mainFilesByPath;
 
-  private CodeNarcXMLParser(final FileSystem fileSystem) {
+  private CodeNarcXMLParser(final FileSystem fileSystem, Consumer<CodeNarcViolation> violations) {
     this.fileSystem = fileSystem;
+    this.violations = violations;
   }
 
   public static List<CodeNarcViolation> parse(File file, FileSystem fileSystem) {
-    CodeNarcXMLParser handler = new CodeNarcXMLParser(fileSystem);
+    List<CodeNarcViolation> result = new ArrayList<>();
+    parse(file, fileSystem, result::add);
+    return result;
+  }
+
+  /**
+   * Streams the violations of the report to {@code violations}, each one as soon as it is read, so
+   * that no more than one violation is held in memory whatever the size of the report.
+   */
+  public static void parse(
+      File file, FileSystem fileSystem, Consumer<CodeNarcViolation> violations) {
+    CodeNarcXMLParser handler = new CodeNarcXMLParser(fileSystem, violations);
     try {
       new StaxParser(handler).parse(file);
     } catch (XMLStreamException e) {
       throw new IllegalStateException("Unabel to parse file: " + file, e);
     }
-    return handler.result;
   }
 
   @Override
@@ -70,7 +89,19 @@ public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
     String packPath = items.getAttrValue("path");
     SMInputCursor file = items.descendantElementCursor("File");
     while (file.getNext() != null) {
-      String filename = getFilename(sourceDirectories, packPath, file.getAttrValue("name"));
+      String filename = packPath + "/" + file.getAttrValue("name");
+      InputFile inputFile = null;
+      for (String directory : sourceDirectories) {
+        inputFile = mainFile(directory + filename);
+        if (inputFile != null) {
+          filename = directory + filename;
+          break;
+        }
+      }
+      if (inputFile == null) {
+        FilePredicates pred = fileSystem.predicates();
+        inputFile = fileSystem.inputFile(pred.hasAbsolutePath(filename));
+      }
       SMInputCursor violation = file.childElementCursor("Violation");
       while (violation.getNext() != null) {
         String lineNumber = violation.getAttrValue("lineNumber");
@@ -80,7 +111,8 @@ public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
         String message =
             messageCursor.getNext() == null ? "" : messageCursor.collectDescendantText(true);
 
-        result.add(new CodeNarcViolation(ruleName, filename, lineNumber, message));
+        violations.accept(
+            new CodeNarcViolation(ruleName, filename, inputFile, lineNumber, message));
       }
     }
   }
@@ -96,27 +128,48 @@ public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
     }
   }
 
-  private String getFilename(List<String> sourceDirectories, String packPath, String attrFilename)
-      throws XMLStreamException {
-    FilePredicates pred = fileSystem.predicates();
-    for (String directory : sourceDirectories) {
-      String path = directory + packPath + "/" + attrFilename;
-      if (fileSystem.hasFiles(pred.and(pred.hasType(Type.MAIN), pred.hasAbsolutePath(path)))) {
-        return path;
+  /**
+   * Main files are indexed by absolute path the first time a report file is resolved, so that each
+   * source directory of the report is then tried in constant time. Relative paths are resolved
+   * against the base directory.
+   */
+  @CheckForNull
+  private InputFile mainFile(String path) {
+    if (mainFilesByPath == null) {
+      mainFilesByPath = new HashMap<>();
+      FilePredicates pred = fileSystem.predicates();
+      for (InputFile inputFile : fileSystem.inputFiles(pred.hasType(Type.MAIN))) {
+        mainFilesByPath.put(FilenameUtils.normalize(inputFile.path().toString(), true), inputFile);
       }
     }
-    return packPath + "/" + attrFilename;
+    File file = new File(path);
+    if (!file.isAbsolute()) {
+      file = new File(fileSystem.baseDir(), path);
+    }
+    String normalized = FilenameUtils.normalize(file.getPath(), true);
+    return normalized == null ? null : mainFilesByPath.get(normalized);
   }
 
   public static class CodeNarcViolation {
     private final String ruleName;
     private final String filename;
+    @Nullable private final InputFile inputFile;
     private final Integer line;
     private final String message;
 
     public CodeNarcViolation(String ruleName, String filename, String lineNumber, String message) {
+      this(ruleName, filename, null, lineNumber, message);
+    }
+
+    public CodeNarcViolation(
+        String ruleName,
+        String filename,
+        @Nullable InputFile inputFile,
+        String lineNumber,
+        String message) {
       this.ruleName = ruleName;
       this.filename = filename;
+      this.inputFile = inputFile;
       this.line = StringUtils.isBlank(lineNumber) ? null : Integer.parseInt(lineNumber);
       this.message = message;
     }
@@ -129,6 +182,12 @@ public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
       return filename;
     }
 
+    /** The indexed file the violation is on, resolved once for all violations of a file. */
+    @CheckForNull
+    public InputFile getInputFile() {
+      return inputFile;
+    }
+
     public Integer getLine() {
       return line;
     }
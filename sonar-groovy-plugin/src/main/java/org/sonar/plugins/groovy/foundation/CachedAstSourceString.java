@@ -0,0 +1,54 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.foundation;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codenarc.source.SourceString;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Source of a file for both CodeNarc and GMetrics, whose AST comes from the shared AST cache at the
+ * compile phase CodeNarc is configured with. The AST is looked up once per source.
+ */
+public class CachedAstSourceString extends SourceString
+    implements org.gmetrics.source.SourceCode {
+
+  private final InputFile inputFile;
+  private final GroovyAstCache astCache;
+  @Nullable private ModuleNode ast;
+  private boolean astLoaded;
+
+  public CachedAstSourceString(String source, InputFile inputFile, GroovyAstCache astCache) {
+    super(source);
+    this.inputFile = inputFile;
+    this.astCache = astCache;
+  }
+
+  @CheckForNull
+  @Override
+  public synchronized ModuleNode getAst() {
+    if (!astLoaded) {
+      ast = astCache.getAst(inputFile, getText(), getAstCompilerPhase(), super::getAst);
+      astLoaded = true;
+    }
+    return ast;
+  }
+}
@@ -21,10 +21,13 @@ package org.sonar.plugins.groovy.foundation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
+import org.sonar.api.PropertyType;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.AbstractLanguage;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
 
 public class Groovy extends AbstractLanguage {
 
@@ -32,6 +35,9 @@ public class Groovy extends AbstractLanguage {
   public static final String NAME = "Groovy";
   public static final String FILE_SUFFIXES_KEY = "sonar.groovy.file.suffixes";
   static final String DEFAULT_FILE_SUFFIXES = ".groovy";
+  public static final String ANALYSIS_THREADS_KEY = "sonar.groovy.analysis.threads";
+  static final int DEFAULT_ANALYSIS_THREADS = 1;
+  public static final String FILE_TIME_BUDGET_KEY = "sonar.groovy.analysis.fileTimeBudget";
 
   /** Settings of the plugin. */
   private final Configuration settings;
@@ -51,6 +57,24 @@ public class Groovy extends AbstractLanguage {
     return addDot(suffixes);
   }
 
+  /**
+   * Number of worker threads used to analyse files. A value of 0 (or less) means one thread per
+   * available processor.
+   */
+  public static int analysisThreads(Configuration settings) {
+    int threads = settings.getInt(ANALYSIS_THREADS_KEY).orElse(DEFAULT_ANALYSIS_THREADS);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Time after which the CodeNarc or GMetrics analysis of a single file is abandoned, in
+   * milliseconds. A value of 0 (or less) means no limit.
+   */
+  public static long fileTimeBudgetMillis(Configuration settings) {
+    int seconds = settings.getInt(FILE_TIME_BUDGET_KEY).orElse(0);
+    return seconds > 0 ? TimeUnit.SECONDS.toMillis(seconds) : 0;
+  }
+
   private static String[] addDot(String[] suffixes) {
     String[] results = new String[suffixes.length];
     for (int i = 0; i < suffixes.length; i++) {
@@ -75,6 +99,7 @@ public class Groovy extends AbstractLanguage {
     return Arrays.asList(
         Groovy.class,
         GroovyFileSystem.class,
+        GroovyAstCache.class,
         PropertyDefinition.builder(FILE_SUFFIXES_KEY)
             .name("File suffixes")
             .description(
@@ -84,6 +109,36 @@ public class Groovy extends AbstractLanguage {
             .onConfigScopes(PropertyDefinition.ConfigScope.PROJECT)
             .defaultValue(DEFAULT_FILE_SUFFIXES)
             .multiValues(true)
+            .build(),
+        PropertyDefinition.builder(ANALYSIS_THREADS_KEY)
+            .name("Analysis threads")
+            .description(
+                "Number of threads used to analyse Groovy files, JaCoCo reports and class files in parallel. Use 0 to start one thread per available processor.")
+            .category(Groovy.NAME)
+            .subCategory("Base")
+            .onConfigScopes(PropertyDefinition.ConfigScope.PROJECT)
+            .defaultValue(Integer.toString(DEFAULT_ANALYSIS_THREADS))
+            .type(PropertyType.INTEGER)
+            .build(),
+        PropertyDefinition.builder(FILE_TIME_BUDGET_KEY)
+            .name("File time budget")
+            .description(
+                "Number of seconds after which the CodeNarc or GMetrics analysis of a single file is abandoned, with a warning. The file then gets no issues or complexity measures. Use 0 for no limit.")
+            .category(Groovy.NAME)
+            .subCategory("Base")
+            .onConfigScopes(PropertyDefinition.ConfigScope.PROJECT)
+            .defaultValue("0")
+            .type(PropertyType.INTEGER)
+            .build(),
+        PropertyDefinition.builder(AnalysisProfiler.PROFILE_KEY)
+            .name("Analysis profile")
+            .description(
+                "If set to \"true\", the time, CPU and memory spent by each phase of the Groovy sensors are written as JSON files to the groovy-profile directory of the scanner work directory. They are also logged in debug mode.")
+            .category(Groovy.NAME)
+            .subCategory("Base")
+            .onConfigScopes(PropertyDefinition.ConfigScope.PROJECT)
+            .defaultValue("false")
+            .type(PropertyType.BOOLEAN)
             .build());
   }
 }
@@ -0,0 +1,116 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.foundation;
+
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Shares the Groovy AST of each file between CodeNarc and GMetrics, so that a source is compiled
+ * only once per compile phase.
+ *
+ * <p>Entries are keyed by file and compile phase, and are only reused for a source with the same
+ * SHA-256 digest as the one they were built from. An entry is removed as soon as it is reused,
+ * since both of its consumers have then had it, and all of them once both analyzers are {@link
+ * #finished}. Until then, ASTs are softly referenced: under memory pressure they are collected and
+ * simply parsed again.
+ */
+@ScannerSide
+public class GroovyAstCache {
+
+  public static final String CODENARC = "CodeNarc";
+  public static final String GMETRICS = "GMetrics";
+
+  private static final int ANALYZERS = 2;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Set<String> finishedAnalyzers = new HashSet<>();
+
+  /**
+   * Returns the AST of {@code source} at {@code phase}, calling {@code parser} only if no AST was
+   * cached for that content. The first request caches the AST, and the second one takes it out of
+   * the cache.
+   */
+  @CheckForNull
+  public ModuleNode getAst(
+      InputFile inputFile, String source, int phase, Supplier<ModuleNode> parser) {
+    String key = phase + ":" + inputFile.uri();
+    byte[] digest = digest(source);
+    Entry entry = entries.remove(key);
+    if (entry != null && Arrays.equals(entry.digest, digest)) {
+      ModuleNode ast = entry.ast.get();
+      return ast != null || entry.parseFailed ? ast : parser.get();
+    }
+    ModuleNode ast = parser.get();
+    entries.put(key, new Entry(digest, ast));
+    return ast;
+  }
+
+  /**
+   * Called by the sensor of {@link #CODENARC} or {@link #GMETRICS} once it is done, whether it
+   * requested ASTs or not. Once both are, the ASTs nobody else will request are released.
+   */
+  public void finished(String analyzer) {
+    synchronized (finishedAnalyzers) {
+      finishedAnalyzers.add(analyzer);
+      if (finishedAnalyzers.size() == ANALYZERS) {
+        finishedAnalyzers.clear();
+        entries.clear();
+      }
+    }
+  }
+
+  private static byte[] digest(String source) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /** Number of ASTs waiting for their second consumer. */
+  int size() {
+    return entries.size();
+  }
+
+  private static class Entry {
+    final byte[] digest;
+    final SoftReference<ModuleNode> ast;
+    final boolean parseFailed;
+
+    Entry(byte[] digest, @Nullable ModuleNode ast) {
+      this.digest = digest;
+      this.ast = new SoftReference<>(ast);
+      this.parseFailed = ast == null;
+    }
+  }
+}
@@ -71,6 +71,22 @@ public class GroovyFileSystem {
             predicates.matchesPathPattern("**/" + relativePath), isGroovyLanguage, isMainTypeFile));
   }
 
+  /**
+   * Indexes the main Groovy files by path, for callers resolving many paths in a row. Unlike {@link
+   * #sourceInputFileFromRelativePath}, the index does not see files added after it was built.
+   */
+  public SourcePathIndex sourcePathIndex() {
+    return new SourcePathIndex(fileSystem.baseDir(), sourceInputFiles());
+  }
+
+  /**
+   * Indexes every file of the file system by path, whatever its language and type, as path
+   * patterns starting with {@code **} would match them.
+   */
+  public SourcePathIndex pathIndex() {
+    return new SourcePathIndex(fileSystem.baseDir(), fileSystem.inputFiles(predicates.all()));
+  }
+
   public File baseDir() {
     return fileSystem.baseDir();
   }
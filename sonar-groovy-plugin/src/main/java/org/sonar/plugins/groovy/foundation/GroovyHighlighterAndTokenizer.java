@@ -19,17 +19,21 @@
 package org.sonar.plugins.groovy.foundation;
 
 import groovyjarjarantlr.Token;
-import groovyjarjarantlr.TokenStream;
 import groovyjarjarantlr.TokenStreamException;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.groovy.antlr.GroovySourceToken;
 import org.codehaus.groovy.antlr.parser.GroovyLexer;
@@ -41,8 +45,9 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.plugins.groovy.utils.AnalysisCache;
 
-public class GroovyHighlighterAndTokenizer {
+public class GroovyHighlighterAndTokenizer implements GroovyTokenVisitor {
 
   private static final Logger LOG = LoggerFactory.getLogger(GroovyHighlighterAndTokenizer.class);
 
@@ -146,79 +151,241 @@ public class GroovyHighlighterAndTokenizer {
           new TypeOfTextToTokenTypes(TypeOfText.CONSTANT, CONSTANTS),
           new TypeOfTextToTokenTypes(TypeOfText.COMMENT, COMMENTS));
 
+  /** Highlighting of each token type, indexed by token type, so that no token needs a search. */
+  private static final TypeOfText[] TYPE_OF_TEXT_BY_TOKEN_TYPE = typeOfTextByTokenType();
+
   private final InputFile inputFile;
-  private final File file;
+  private final List<GroovyToken> tokens = new ArrayList<>();
   private boolean isAnnotation;
 
+  // Set while streaming, and while a buffered token list is being saved
+  @Nullable private NewHighlighting highlighting;
+  @Nullable private NewCpdTokens cpdTokens;
+  @Nullable private SensorContext streamContext;
+  @Nullable private Object streamLock;
+  @Nullable private DeferredFileOutputStream recordedTokens;
+  @Nullable private DataOutputStream tokenRecorder;
+
   public GroovyHighlighterAndTokenizer(InputFile inputFile) {
     this.inputFile = inputFile;
-    this.file = inputFile.file();
   }
 
   public void processFile(SensorContext context) {
-    List<GroovyToken> tokens = new ArrayList<>();
+    stream(context, this, null);
+    lex();
+    save(context);
+  }
+
+  /**
+   * Pushes the tokens visited from now on straight into highlighting and CPD builders, instead of
+   * buffering them until {@link #save}, so that large files never have their whole token list on
+   * the heap. Tokens may be visited on any thread: the builders are created on the sensor context
+   * when the first token arrives, under {@code lock}, which must also guard {@link #save}.
+   *
+   * @param tokenCache if not null, a serialized copy of the tokens is also kept for {@link
+   *     #writeTokens}, in a buffer of this cache, until {@link #discardRecordedTokens}
+   */
+  public void stream(SensorContext context, Object lock, @Nullable AnalysisCache tokenCache) {
+    streamContext = context;
+    streamLock = lock;
+    if (tokenCache != null) {
+      recordedTokens = tokenCache.newBuffer();
+      tokenRecorder = new DataOutputStream(new BufferedOutputStream(recordedTokens));
+    }
+  }
+
+  /**
+   * Lexes the file on its own. Does not access the sensor context, so it may run on any thread.
+   * The file is read like for base metrics, through its input stream and charset, without BOM.
+   *
+   * @return whether the whole file could be lexed
+   */
+  public boolean lex() {
+    tokens.clear();
     isAnnotation = false;
 
     try (InputStreamReader streamReader =
-        new InputStreamReader(new FileInputStream(file), context.fileSystem().encoding())) {
-      GroovyLexer groovyLexer = new GroovyLexer(streamReader);
-      groovyLexer.setWhitespaceIncluded(true);
-      TokenStream tokenStream = groovyLexer.plumb();
-      Token token = tokenStream.nextToken();
-
-      int type = token.getType();
-      while (type != Token.EOF_TYPE) {
-        String text = token.getText();
-        TypeOfText typeOfText = typeOfText(type, text).orElse(null);
-        GroovySourceToken gst = (GroovySourceToken) token;
-        if (StringUtils.isNotBlank(text)) {
-          tokens.add(
-              new GroovyToken(
-                  token.getLine(),
-                  token.getColumn(),
-                  gst.getLineLast(),
-                  gst.getColumnLast(),
-                  getImage(token, text),
-                  typeOfText));
-        }
-        token = tokenStream.nextToken();
-        type = token.getType();
-      }
+        new InputStreamReader(inputFile.inputStream(), inputFile.charset())) {
+      GroovyTokenPipeline.lex(streamReader, this);
+      return true;
     } catch (TokenStreamException e) {
-      LOG.error("Unexpected token when lexing file: " + file.getName(), e);
+      LOG.error("Unexpected token when lexing file: " + inputFile.filename(), e);
     } catch (IOException e) {
-      LOG.error("Unable to read file: " + file.getName(), e);
+      LOG.error("Unable to read file: " + inputFile.filename(), e);
+    }
+    return false;
+  }
+
+  @Override
+  public void visitToken(Token token, int nextTokenLine) {
+    int type = token.getType();
+    if (type == Token.EOF_TYPE) {
+      return;
+    }
+    String text = token.getText();
+    // Classified even when blank, as whitespace ends annotations
+    TypeOfText typeOfText = typeOfText(type, text);
+    if (StringUtils.isBlank(text)) {
+      return;
     }
+    GroovySourceToken gst = (GroovySourceToken) token;
+    int startLine = token.getLine();
+    int startColumn = token.getColumn() - 1;
+    int endLine = gst.getLineLast();
+    int endColumn = gst.getColumnLast() - 1;
+    String image = getImage(token, text);
+    emit(startLine, startColumn, endLine, endColumn, image, typeOfText);
+  }
 
-    if (!tokens.isEmpty()) {
-      boolean isNotTest = inputFile.type() != InputFile.Type.TEST;
-      NewCpdTokens cpdTokens = isNotTest ? context.newCpdTokens().onFile(inputFile) : null;
-      NewHighlighting highlighting = context.newHighlighting().onFile(inputFile);
-      for (GroovyToken groovyToken : tokens) {
-        if (isNotTest) {
-          cpdTokens =
-              cpdTokens.addToken(
-                  groovyToken.startLine,
-                  groovyToken.startColumn,
-                  groovyToken.endLine,
-                  groovyToken.endColumn,
-                  groovyToken.value);
+  /** Streams the token into the builders when streaming, or buffers it until {@link #save}. */
+  private void emit(
+      int startLine,
+      int startColumn,
+      int endLine,
+      int endColumn,
+      String image,
+      @Nullable TypeOfText typeOfText) {
+    if (streamContext != null) {
+      if (highlighting == null) {
+        synchronized (streamLock) {
+          createBuilders(streamContext);
         }
-        if (groovyToken.typeOfText != null) {
-          highlighting =
-              highlighting.highlight(
-                  groovyToken.startLine,
-                  groovyToken.startColumn,
-                  groovyToken.endLine,
-                  groovyToken.endColumn,
-                  groovyToken.typeOfText);
+      }
+      addToken(startLine, startColumn, endLine, endColumn, image, typeOfText);
+      if (tokenRecorder != null) {
+        try {
+          writeToken(tokenRecorder, startLine, startColumn, endLine, endColumn, image, typeOfText);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
         }
       }
+    } else {
+      tokens.add(new GroovyToken(startLine, startColumn, endLine, endColumn, image, typeOfText));
+    }
+  }
+
+  /** Saves highlighting and CPD tokens for the tokens visited so far. */
+  public void save(SensorContext context) {
+    if (streamContext == null && !tokens.isEmpty()) {
+      createBuilders(context);
+      for (GroovyToken token : tokens) {
+        addToken(
+            token.startLine,
+            token.startColumn,
+            token.endLine,
+            token.endColumn,
+            token.value,
+            token.typeOfText);
+      }
+    }
+    if (highlighting != null) {
       highlighting.save();
-      if (isNotTest) {
+      if (cpdTokens != null) {
         cpdTokens.save();
       }
     }
+    highlighting = null;
+    cpdTokens = null;
+    streamContext = null;
+    streamLock = null;
+  }
+
+  private void createBuilders(SensorContext context) {
+    highlighting = context.newHighlighting().onFile(inputFile);
+    cpdTokens =
+        inputFile.type() != InputFile.Type.TEST ? context.newCpdTokens().onFile(inputFile) : null;
+  }
+
+  private void addToken(
+      int startLine,
+      int startColumn,
+      int endLine,
+      int endColumn,
+      String value,
+      @Nullable TypeOfText typeOfText) {
+    if (cpdTokens != null) {
+      cpdTokens = cpdTokens.addToken(startLine, startColumn, endLine, endColumn, value);
+    }
+    if (typeOfText != null) {
+      highlighting = highlighting.highlight(startLine, startColumn, endLine, endColumn, typeOfText);
+    }
+  }
+
+  /**
+   * Writes the tokens visited so far, so that they can be saved again without lexing. When
+   * streaming, only tokens recorded since {@link #stream} are written.
+   */
+  public void writeTokens(DataOutput out) throws IOException {
+    if (recordedTokens != null) {
+      tokenRecorder.close();
+      byte[] chunk = new byte[8192];
+      try (InputStream in = recordedTokens.toInputStream()) {
+        for (int read = in.read(chunk); read >= 0; read = in.read(chunk)) {
+          out.write(chunk, 0, read);
+        }
+      }
+    } else {
+      for (GroovyToken token : tokens) {
+        writeToken(
+            out,
+            token.startLine,
+            token.startColumn,
+            token.endLine,
+            token.endColumn,
+            token.value,
+            token.typeOfText);
+      }
+    }
+    out.writeInt(-1);
+  }
+
+  /** Releases the tokens recorded since {@link #stream}, once they are written or not needed. */
+  public void discardRecordedTokens() {
+    if (recordedTokens != null) {
+      AnalysisCache.discard(recordedTokens);
+      recordedTokens = null;
+      tokenRecorder = null;
+    }
+  }
+
+  /**
+   * Replaces the tokens of this file with the ones written by {@link #writeTokens}. Once {@link
+   * #stream streaming}, they go one at a time into the builders, like lexed tokens do.
+   */
+  public void readTokens(DataInput in) throws IOException {
+    tokens.clear();
+    TypeOfText[] typesOfText = TypeOfText.values();
+    for (int startLine = in.readInt(); startLine >= 0; startLine = in.readInt()) {
+      int startColumn = in.readInt();
+      int endLine = in.readInt();
+      int endColumn = in.readInt();
+      String value = AnalysisCache.readString(in);
+      int typeOfText = in.readInt();
+      emit(
+          startLine,
+          startColumn,
+          endLine,
+          endColumn,
+          value,
+          typeOfText < 0 ? null : typesOfText[typeOfText]);
+    }
+  }
+
+  private static void writeToken(
+      DataOutput out,
+      int startLine,
+      int startColumn,
+      int endLine,
+      int endColumn,
+      String value,
+      @Nullable TypeOfText typeOfText)
+      throws IOException {
+    out.writeInt(startLine);
+    out.writeInt(startColumn);
+    out.writeInt(endLine);
+    out.writeInt(endColumn);
+    AnalysisCache.writeString(out, value);
+    out.writeInt(typeOfText == null ? -1 : typeOfText.ordinal());
   }
 
   private String getImage(Token token, String text) {
@@ -231,14 +398,30 @@ public class GroovyHighlighterAndTokenizer {
     return text;
   }
 
-  private Optional<TypeOfText> typeOfText(int type, String text) {
-    TypeOfText result = null;
+  private static TypeOfText[] typeOfTextByTokenType() {
+    int maxTokenType = 0;
     for (TypeOfTextToTokenTypes mapping : HIGHLIGHTING_MAPPING) {
-      if (Arrays.stream(mapping.tokenTypes).anyMatch(tokenType -> tokenType == type)) {
-        result = mapping.typeOfText;
-        break;
+      for (int tokenType : mapping.tokenTypes) {
+        maxTokenType = Math.max(maxTokenType, tokenType);
+      }
+    }
+    TypeOfText[] typeOfTextByTokenType = new TypeOfText[maxTokenType + 1];
+    // Iterated in reverse, so that the first mapping of a token type wins as it did before
+    for (int i = HIGHLIGHTING_MAPPING.size() - 1; i >= 0; i--) {
+      TypeOfTextToTokenTypes mapping = HIGHLIGHTING_MAPPING.get(i);
+      for (int tokenType : mapping.tokenTypes) {
+        typeOfTextByTokenType[tokenType] = mapping.typeOfText;
       }
     }
+    return typeOfTextByTokenType;
+  }
+
+  @CheckForNull
+  private TypeOfText typeOfText(int type, String text) {
+    TypeOfText result =
+        type >= 0 && type < TYPE_OF_TEXT_BY_TOKEN_TYPE.length
+            ? TYPE_OF_TEXT_BY_TOKEN_TYPE[type]
+            : null;
 
     if (result == TypeOfText.COMMENT && text.startsWith("/**")) {
       result = TypeOfText.STRUCTURED_COMMENT;
@@ -247,7 +430,7 @@ public class GroovyHighlighterAndTokenizer {
       result = isAnnotation ? TypeOfText.ANNOTATION : null;
     }
 
-    return Optional.ofNullable(result);
+    return result;
   }
 
   private static boolean isPartOfAnnotation(int type) {
@@ -270,9 +453,9 @@ public class GroovyHighlighterAndTokenizer {
         String value,
         @Nullable TypeOfText typeOfText) {
       this.startLine = startLine;
-      this.startColumn = startColumn - 1;
+      this.startColumn = startColumn;
       this.endLine = endLine;
-      this.endColumn = endColumn - 1;
+      this.endColumn = endColumn;
       this.value = value;
       this.typeOfText = typeOfText;
     }
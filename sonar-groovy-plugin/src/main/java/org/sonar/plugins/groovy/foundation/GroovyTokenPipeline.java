@@ -0,0 +1,55 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.foundation;
+
+import groovyjarjarantlr.Token;
+import groovyjarjarantlr.TokenStream;
+import groovyjarjarantlr.TokenStreamException;
+import java.io.Reader;
+import org.codehaus.groovy.antlr.parser.GroovyLexer;
+
+/**
+ * Lexes a Groovy source once and dispatches every token to several {@link GroovyTokenVisitor}s,
+ * so that base metrics, highlighting and CPD tokens are all computed from the same token stream.
+ */
+public final class GroovyTokenPipeline {
+
+  private GroovyTokenPipeline() {}
+
+  public static void lex(Reader reader, GroovyTokenVisitor... visitors)
+      throws TokenStreamException {
+    GroovyLexer groovyLexer = new GroovyLexer(reader);
+    groovyLexer.setWhitespaceIncluded(true);
+    TokenStream tokenStream = groovyLexer.plumb();
+    Token token = tokenStream.nextToken();
+    Token nextToken = tokenStream.nextToken();
+    while (nextToken.getType() != Token.EOF_TYPE) {
+      visit(visitors, token, nextToken.getLine());
+      token = nextToken;
+      nextToken = tokenStream.nextToken();
+    }
+    visit(visitors, token, nextToken.getLine());
+  }
+
+  private static void visit(GroovyTokenVisitor[] visitors, Token token, int nextTokenLine) {
+    for (GroovyTokenVisitor visitor : visitors) {
+      visitor.visitToken(token, nextTokenLine);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.foundation;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Files by every suffix of their path relative to the base directory, so that a path relative to a
+ * source directory or to a package root resolves in a single lookup instead of matching a path
+ * pattern against every file. The index is a snapshot of the files it was built from.
+ */
+public final class SourcePathIndex {
+
+  private final Map<String, InputFile> filesBySuffix = new HashMap<>();
+  private final Set<String> ambiguousSuffixes = new HashSet<>();
+
+  SourcePathIndex(File baseDir, Iterable<InputFile> inputFiles) {
+    String basePath = baseDir.toPath().toAbsolutePath().normalize().toUri().getPath();
+    if (!basePath.endsWith("/")) {
+      basePath += "/";
+    }
+    for (InputFile inputFile : inputFiles) {
+      String path = inputFile.uri().getPath();
+      if (path.startsWith(basePath)) {
+        path = path.substring(basePath.length());
+      }
+      index(path, inputFile);
+    }
+  }
+
+  private void index(String path, InputFile inputFile) {
+    int start = path.startsWith("/") ? 1 : 0;
+    while (start >= 0) {
+      String suffix = path.substring(start);
+      if (filesBySuffix.putIfAbsent(suffix, inputFile) != null) {
+        ambiguousSuffixes.add(suffix);
+      }
+      int slash = path.indexOf('/', start);
+      start = slash < 0 ? -1 : slash + 1;
+    }
+  }
+
+  /**
+   * The file whose path ends with {@code relativePath}, as a path pattern starting with {@code **}
+   * followed by {@code relativePath} would match it.
+   *
+   * @throws IllegalArgumentException if several files match, like {@link
+   *     org.sonar.api.batch.fs.FileSystem#inputFile}
+   */
+  @CheckForNull
+  public InputFile inputFile(@Nullable String relativePath) {
+    if (relativePath == null) {
+      return null;
+    }
+    if (ambiguousSuffixes.contains(relativePath)) {
+      throw new IllegalArgumentException("Several files match " + relativePath);
+    }
+    return filesBySuffix.get(relativePath);
+  }
+}
@@ -19,100 +19,124 @@
  */
 package org.sonar.plugins.groovy.gmetrics;
 
-import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import org.apache.tools.ant.Project;
-import org.apache.tools.ant.types.FileSet;
-import org.gmetrics.GMetricsRunner;
-import org.gmetrics.analyzer.SourceAnalyzer;
-import org.gmetrics.ant.AntFileSetSourceAnalyzer;
+import org.gmetrics.analyzer.SourceCodeMetricSetAnalyzer;
+import org.gmetrics.metric.MetricSet;
 import org.gmetrics.metric.cyclomatic.CyclomaticComplexityMetric;
 import org.gmetrics.metric.linecount.ClassLineCountMetric;
 import org.gmetrics.metric.linecount.MethodLineCountMetric;
 import org.gmetrics.resultsnode.ClassResultsNode;
-import org.gmetrics.resultsnode.PackageResultsNode;
-import org.gmetrics.resultsnode.ResultsNode;
-import org.sonar.api.batch.fs.FileSystem;
+import org.gmetrics.source.SourceCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.groovy.foundation.CachedAstSourceString;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
+import org.sonar.plugins.groovy.utils.FileTimer;
+import org.sonar.plugins.groovy.utils.ParallelTasks;
 
 public class GMetricsSourceAnalyzer {
 
+  private static final Logger LOG = LoggerFactory.getLogger(GMetricsSourceAnalyzer.class);
+
   private static final List<org.gmetrics.metric.Metric> GMETRICS =
       Arrays.asList(
           new CyclomaticComplexityMetric(),
           new ClassLineCountMetric(),
           new MethodLineCountMetric());
 
-  private final Map<InputFile, List<ClassResultsNode>> resultsByFile = new HashMap<>();
+  private static final MetricSet METRIC_SET = () -> GMETRICS;
 
-  private final Map<String, InputFile> pathToInputFile = new HashMap<>();
-  private final Set<File> files = new HashSet<>();
+  private final Map<InputFile, List<ClassResultsNode>> resultsByFile = new LinkedHashMap<>();
+  private final Set<InputFile> skippedFiles = new HashSet<>();
 
-  private final File fileSystemBaseDir;
+  private final List<InputFile> sourceFiles;
+  private final GroovyAstCache astCache;
+  private final int threads;
+  private final AnalysisProfiler profiler;
+  private final long fileTimeBudgetMillis;
 
-  public GMetricsSourceAnalyzer(FileSystem fileSystem, List<InputFile> sourceFiles) {
-    this.fileSystemBaseDir = fileSystem.baseDir();
+  public GMetricsSourceAnalyzer(List<InputFile> sourceFiles, GroovyAstCache astCache) {
+    this(sourceFiles, astCache, 1);
+  }
 
-    for (InputFile inputFile : sourceFiles) {
-      pathToInputFile.put(inputFile.absolutePath(), inputFile);
-      files.add(inputFile.file());
-    }
+  /**
+   * @param threads number of files analysed at the same time
+   */
+  public GMetricsSourceAnalyzer(List<InputFile> sourceFiles, GroovyAstCache astCache, int threads) {
+    this(sourceFiles, astCache, threads, AnalysisProfiler.disabled(), 0);
+  }
+
+  /**
+   * @param profiler measures the analysis of each file, as the {@code gmetrics} phase
+   * @param fileTimeBudgetMillis time after which the analysis of a file is abandoned, or 0 for no
+   *     limit
+   */
+  public GMetricsSourceAnalyzer(
+      List<InputFile> sourceFiles,
+      GroovyAstCache astCache,
+      int threads,
+      AnalysisProfiler profiler,
+      long fileTimeBudgetMillis) {
+    this.sourceFiles = sourceFiles;
+    this.astCache = astCache;
+    this.threads = threads;
+    this.profiler = profiler;
+    this.fileTimeBudgetMillis = fileTimeBudgetMillis;
   }
 
   public Map<InputFile, List<ClassResultsNode>> resultsByFile() {
     return resultsByFile;
   }
 
-  public void analyze() {
-    FileSet fileSet = new FileSet();
-    fileSet.setDir(fileSystemBaseDir);
-    fileSet.add((basedir, filename, file) -> files.contains(file));
-
-    List<FileSet> fileSets = new ArrayList<>();
-    fileSets.add(fileSet);
-
-    Project project = new Project();
-    project.setBaseDir(fileSystemBaseDir);
-
-    SourceAnalyzer analyzer = new AntFileSetSourceAnalyzer(project, fileSets);
-
-    GMetricsRunner runner = new GMetricsRunner();
-    runner.setMetricSet(() -> GMETRICS);
-    runner.setSourceAnalyzer(analyzer);
-    ResultsNode resultNode = runner.execute();
-
-    processResults(resultNode, pathToInputFile);
+  /** Files whose analysis was abandoned after the time budget, and have no results. */
+  public Set<InputFile> skippedFiles() {
+    return skippedFiles;
   }
 
-  private void processResults(ResultsNode resultNode, Map<String, InputFile> pathToInputFile) {
-    if (resultNode instanceof PackageResultsNode) {
-      processPackageResults((PackageResultsNode) resultNode, pathToInputFile);
-    } else {
-      processClassResults((ClassResultsNode) resultNode, pathToInputFile);
+  /**
+   * Analyses every indexed source file on its own, without walking the base directory. The AST of
+   * each file is taken from the shared cache, so a file already compiled for CodeNarc is not
+   * compiled again. Results keep the order of the source files.
+   */
+  public void analyze() {
+    List<List<ClassResultsNode>> results;
+    try (FileTimer timer = new FileTimer("GMetrics", fileTimeBudgetMillis)) {
+      results =
+          ParallelTasks.map(
+              sourceFiles, threads, inputFile -> timer.time(inputFile, () -> analyze(inputFile)));
+      timer.logSlowest();
+    }
+    for (int i = 0; i < sourceFiles.size(); i++) {
+      if (results.get(i) == null) {
+        skippedFiles.add(sourceFiles.get(i));
+      } else if (!results.get(i).isEmpty()) {
+        resultsByFile.put(sourceFiles.get(i), results.get(i));
+      }
     }
   }
 
-  private void processPackageResults(
-      PackageResultsNode resultNode, Map<String, InputFile> pathToInputFile) {
-    for (Entry<String, ResultsNode> entry : resultNode.getChildren().entrySet()) {
-      processResults(entry.getValue(), pathToInputFile);
+  private List<ClassResultsNode> analyze(InputFile inputFile) {
+    try (AnalysisProfiler.Measure measure = profiler.start("gmetrics").file(inputFile.path())) {
+      SourceCode sourceCode = new CachedAstSourceString(inputFile.contents(), inputFile, astCache);
+      return new ArrayList<>(analyze(sourceCode));
+    } catch (IOException e) {
+      LOG.error("Could not read input file: " + inputFile.toString(), e);
+      return Collections.emptyList();
     }
   }
 
-  private void processClassResults(
-      ClassResultsNode resultNode, Map<String, InputFile> pathToInputFile) {
-    String filePath = resultNode.getFilePath();
-    InputFile inputFile = pathToInputFile.get(filePath);
-    if (inputFile != null) {
-      resultsByFile.putIfAbsent(inputFile, new ArrayList<>());
-      resultsByFile.get(inputFile).add(resultNode);
-    }
+  private static Collection<ClassResultsNode> analyze(SourceCode sourceCode) {
+    return new SourceCodeMetricSetAnalyzer().analyze(METRIC_SET, sourceCode).values();
   }
 }
@@ -0,0 +1,202 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.jacoco;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.sonar.plugins.groovy.utils.ParallelTasks;
+
+/**
+ * Class files found in the binary directories and archives of the project, by class name. Entries
+ * of jar and zip archives are read through their zip file system, which stays open until the index
+ * is closed.
+ */
+final class ClassFileIndex implements Closeable {
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  /** Holds the versioned classes of multi-release jars, which duplicate the ones at the root. */
+  private static final String META_INF = "META-INF";
+
+  private static final String MODULE_INFO = "module-info.class";
+
+  private final Map<String, Path> classFiles;
+  private final List<FileSystem> archives;
+
+  private ClassFileIndex(Map<String, Path> classFiles, List<FileSystem> archives) {
+    this.classFiles = classFiles;
+    this.archives = archives;
+  }
+
+  /**
+   * Walks the binary locations on up to {@code threads} threads, one location per task. When
+   * several locations hold the same class, the last one wins.
+   */
+  static ClassFileIndex build(List<File> binaryLocations, int threads) {
+    long start = System.nanoTime();
+    List<Location> locations =
+        ParallelTasks.map(binaryLocations, threads, ClassFileIndex::walk);
+    Map<String, Path> classFiles = new HashMap<>();
+    List<FileSystem> archives = new ArrayList<>();
+    for (Location location : locations) {
+      classFiles.putAll(location.classFiles);
+      if (location.archive != null) {
+        archives.add(location.archive);
+      }
+    }
+    JaCoCoExtensions.logger()
+        .debug(
+            "Indexed {} class files in {} binary locations ({} archives) in {} ms",
+            classFiles.size(),
+            binaryLocations.size(),
+            archives.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    return new ClassFileIndex(classFiles, archives);
+  }
+
+  Collection<Path> classFiles() {
+    return Collections.unmodifiableCollection(classFiles.values());
+  }
+
+  int size() {
+    return classFiles.size();
+  }
+
+  @Override
+  public void close() {
+    for (FileSystem archive : archives) {
+      try {
+        archive.close();
+      } catch (IOException e) {
+        JaCoCoExtensions.logger().debug("Unable to close " + archive, e);
+      }
+    }
+    archives.clear();
+    classFiles.clear();
+  }
+
+  private static Location walk(File binaryLocation) {
+    Path path = binaryLocation.toPath();
+    if (Files.isDirectory(path)) {
+      return new Location(classFilesUnder(path), null);
+    }
+    if (Files.isRegularFile(path) && isArchive(path)) {
+      FileSystem archive = null;
+      try {
+        archive = FileSystems.newFileSystem(path);
+        Map<String, Path> classFiles = new HashMap<>();
+        for (Path root : archive.getRootDirectories()) {
+          classFiles.putAll(classFilesUnder(root));
+        }
+        return new Location(classFiles, archive);
+      } catch (IOException | RuntimeException e) {
+        closeQuietly(archive);
+        JaCoCoExtensions.logger().warn("Unable to read class files of " + binaryLocation, e);
+      }
+    }
+    return new Location(Collections.emptyMap(), null);
+  }
+
+  private static Map<String, Path> classFilesUnder(Path root) {
+    Map<String, Path> classFiles = new HashMap<>();
+    String separator = root.getFileSystem().getSeparator();
+    try {
+      Files.walkFileTree(
+          root,
+          EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+          Integer.MAX_VALUE,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+              return META_INF.equals(root.relativize(dir).toString())
+                  ? FileVisitResult.SKIP_SUBTREE
+                  : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              String relativePath = root.relativize(file).toString();
+              if (attrs.isRegularFile()
+                  && relativePath.endsWith(CLASS_SUFFIX)
+                  && !MODULE_INFO.equals(String.valueOf(file.getFileName()))) {
+                String className =
+                    relativePath.substring(0, relativePath.length() - CLASS_SUFFIX.length());
+                if (!"/".equals(separator)) {
+                  className = className.replace(separator, "/");
+                }
+                classFiles.put(className, file);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+              // unreadable entries and symbolic link loops are skipped, the rest is still indexed
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException e) {
+      JaCoCoExtensions.logger().warn("Unable to list class files of " + root, e);
+    }
+    return classFiles;
+  }
+
+  private static boolean isArchive(Path path) {
+    String name = path.getFileName().toString().toLowerCase(Locale.ENGLISH);
+    return name.endsWith(".jar") || name.endsWith(".zip");
+  }
+
+  private static void closeQuietly(@Nullable FileSystem archive) {
+    if (archive != null) {
+      try {
+        archive.close();
+      } catch (IOException e) {
+        // nothing was read from it
+      }
+    }
+  }
+
+  private static final class Location {
+    private final Map<String, Path> classFiles;
+    @Nullable private final FileSystem archive;
+
+    private Location(Map<String, Path> classFiles, @Nullable FileSystem archive) {
+      this.classFiles = classFiles;
+      this.archive = archive;
+    }
+  }
+}
@@ -25,12 +25,32 @@ import org.jacoco.core.data.*;
 public class ExecutionDataVisitor implements ISessionInfoVisitor, IExecutionDataVisitor {
 
   private final Map<String, ExecutionDataStore> sessions = new HashMap<>();
+  private final boolean keepSessions;
 
   private ExecutionDataStore executionDataStore;
   private ExecutionDataStore merged = new ExecutionDataStore();
 
+  public ExecutionDataVisitor() {
+    this(true);
+  }
+
+  private ExecutionDataVisitor(boolean keepSessions) {
+    this.keepSessions = keepSessions;
+  }
+
+  /**
+   * A visitor which only keeps {@link #getMerged()}: probes of each class are OR-ed in place into
+   * the first execution data read for it, so that no copy of the probes is ever made.
+   */
+  public static ExecutionDataVisitor mergedOnly() {
+    return new ExecutionDataVisitor(false);
+  }
+
   @Override
   public void visitSessionInfo(SessionInfo info) {
+    if (!keepSessions) {
+      return;
+    }
     String sessionId = info.getId();
     executionDataStore = sessions.get(sessionId);
     if (executionDataStore == null) {
@@ -41,10 +61,16 @@ public class ExecutionDataVisitor implements ISessionInfoVisitor, IExecutionData
 
   @Override
   public void visitClassExecution(ExecutionData data) {
+    if (!keepSessions) {
+      // the reader creates fresh execution data for each record, which nothing else references
+      merged.put(data);
+      return;
+    }
     executionDataStore.put(data);
     merged.put(defensiveCopy(data));
   }
 
+  /** Execution data by session, always empty for a {@link #mergedOnly()} visitor. */
   public Map<String, ExecutionDataStore> getSessions() {
     return sessions;
   }
@@ -22,34 +22,43 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import javax.annotation.CheckForNull;
-import org.apache.commons.lang3.StringUtils;
+import javax.annotation.Nullable;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.ICounter;
 import org.jacoco.core.analysis.ILine;
 import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.coverage.NewCoverage;
 import org.sonar.api.config.Configuration;
+import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.foundation.SourcePathIndex;
 
 public class JaCoCoAnalyzer {
 
   private final List<File> binaryDirs;
   private final File baseDir;
   private final GroovyFileSystem groovyFileSystem;
-  private Map<String, File> classFilesCache;
-  private final Path report;
+  private ClassFileIndex classFileIndex;
+  @Nullable private final Path report;
+  private final int threads;
 
-  public JaCoCoAnalyzer(GroovyFileSystem groovyFileSystem, Configuration settings, Path report) {
+  /** Analyser of execution data handed to {@link #analyse(SensorContext, ExecutionDataStore)}. */
+  public JaCoCoAnalyzer(GroovyFileSystem groovyFileSystem, Configuration settings) {
+    this(groovyFileSystem, settings, null);
+  }
+
+  public JaCoCoAnalyzer(
+      GroovyFileSystem groovyFileSystem, Configuration settings, @Nullable Path report) {
     this.groovyFileSystem = groovyFileSystem;
     baseDir = groovyFileSystem.baseDir();
     this.binaryDirs = getFiles(getBinaryDirectories(settings), baseDir);
     this.report = report;
+    this.threads = Groovy.analysisThreads(settings);
   }
 
   private List<String> getBinaryDirectories(Configuration settings) {
@@ -73,10 +82,10 @@ public class JaCoCoAnalyzer {
   }
 
   @CheckForNull
-  private InputFile getInputFile(ISourceFileCoverage coverage) {
+  private static InputFile getInputFile(
+      SourcePathIndex sourcePathIndex, ISourceFileCoverage coverage) {
     String path = getFileRelativePath(coverage);
-    InputFile sourceInputFileFromRelativePath =
-        groovyFileSystem.sourceInputFileFromRelativePath(path);
+    InputFile sourceInputFileFromRelativePath = sourcePathIndex.inputFile(path);
     if (sourceInputFileFromRelativePath == null && path.endsWith(".groovy")) {
       JaCoCoExtensions.logger().warn("File not found: " + path);
     }
@@ -92,43 +101,47 @@ public class JaCoCoAnalyzer {
   }
 
   public final void analyse(SensorContext context) {
-    if (!atLeastOneBinaryDirectoryExists()) {
-      JaCoCoExtensions.logger()
-          .warn("Project coverage is set to 0% since there is no directories with classes.");
+    if (!indexClassFiles()) {
       return;
     }
-    classFilesCache = new HashMap<>();
-    for (File classesDir : binaryDirs) {
-      populateClassFilesCache(classFilesCache, classesDir, "");
-    }
+    try {
+      if (report == null) {
+        JaCoCoExtensions.logger().warn("No jacoco coverage execution file found.");
+        return;
+      }
+      Path jacocoExecutionData = baseDir.toPath().resolve(report).normalize();
 
-    if (report == null) {
-      JaCoCoExtensions.logger().warn("No jacoco coverage execution file found.");
-      return;
+      readExecutionData(jacocoExecutionData, context);
+    } finally {
+      classFileIndex.close();
     }
-    Path jacocoExecutionData = baseDir.toPath().resolve(report).normalize();
-
-    readExecutionData(jacocoExecutionData, context);
-
-    classFilesCache.clear();
   }
 
-  private static void populateClassFilesCache(
-      Map<String, File> classFilesCache, File dir, String path) {
-    File[] files = dir.listFiles();
-    if (files == null) {
+  /**
+   * Saves the coverage of execution data already loaded in memory, such as the one merged by
+   * {@link JaCoCoReportMerger#mergeReports(File...)}, instead of reading the report.
+   */
+  public final void analyse(SensorContext context, ExecutionDataStore executionData) {
+    if (!indexClassFiles()) {
       return;
     }
-    for (File file : files) {
-      if (file.isDirectory()) {
-        populateClassFilesCache(classFilesCache, file, path + file.getName() + "/");
-      } else if (file.getName().endsWith(".class")) {
-        String className = path + StringUtils.removeEnd(file.getName(), ".class");
-        classFilesCache.put(className, file);
-      }
+    try {
+      analyseExecutionData(executionData, context);
+    } finally {
+      classFileIndex.close();
     }
   }
 
+  private boolean indexClassFiles() {
+    if (!atLeastOneBinaryDirectoryExists()) {
+      JaCoCoExtensions.logger()
+          .warn("Project coverage is set to 0% since there is no directories with classes.");
+      return false;
+    }
+    classFileIndex = ClassFileIndex.build(binaryDirs, threads);
+    return true;
+  }
+
   private boolean atLeastOneBinaryDirectoryExists() {
     if (binaryDirs.isEmpty()) {
       JaCoCoExtensions.logger().warn("No binary directories defined.");
@@ -142,17 +155,28 @@ public class JaCoCoAnalyzer {
   }
 
   public final void readExecutionData(Path jacocoExecutionData, SensorContext context) {
-    ExecutionDataVisitor executionDataVisitor = new ExecutionDataVisitor();
+    ExecutionDataVisitor executionDataVisitor = ExecutionDataVisitor.mergedOnly();
 
-    JaCoCoReportReader jacocoReportReader =
-        new JaCoCoReportReader(jacocoExecutionData.toFile())
-            .readJacocoReport(executionDataVisitor, executionDataVisitor);
+    new JaCoCoReportReader(jacocoExecutionData.toFile())
+        .readJacocoReport(executionDataVisitor, executionDataVisitor);
+
+    analyseExecutionData(executionDataVisitor.getMerged(), context);
+  }
 
+  private void analyseExecutionData(ExecutionDataStore executionData, SensorContext context) {
+    SourcePathIndex sourcePathIndex = groovyFileSystem.sourcePathIndex();
+    RelevantClassFileFilter classFilter = new RelevantClassFileFilter(sourcePathIndex);
     CoverageBuilder coverageBuilder =
-        jacocoReportReader.analyzeFiles(executionDataVisitor.getMerged(), classFilesCache.values());
+        new JaCoCoReportReader(null)
+            .analyzeFiles(executionData, classFileIndex.classFiles(), threads, classFilter);
+    JaCoCoExtensions.logger()
+        .debug(
+            "Skipped {} of {} class files without indexed Groovy source",
+            classFilter.skipped(),
+            classFileIndex.size());
     int analyzedResources = 0;
     for (ISourceFileCoverage coverage : coverageBuilder.getSourceFiles()) {
-      InputFile groovyFile = getInputFile(coverage);
+      InputFile groovyFile = getInputFile(sourcePathIndex, coverage);
       if (groovyFile != null) {
         NewCoverage newCoverage = context.newCoverage().onFile(groovyFile);
         analyzeFile(newCoverage, groovyFile, coverage);
@@ -57,12 +57,12 @@ public class JaCoCoConfiguration {
     return fileSystem.hasFiles(fileSystem.predicates().hasLanguage(Groovy.KEY));
   }
 
-  public String getReportPath() {
-    return settings.get(REPORT_PATH_PROPERTY).orElseThrow(IllegalStateException::new);
+  public String[] getReportPaths() {
+    return settings.getStringArray(REPORT_PATH_PROPERTY);
   }
 
-  public String getItReportPath() {
-    return settings.get(IT_REPORT_PATH_PROPERTY).orElseThrow(IllegalStateException::new);
+  public String[] getItReportPaths() {
+    return settings.getStringArray(IT_REPORT_PATH_PROPERTY);
   }
 
   private boolean isCoverageToZeroWhenNoReport() {
@@ -75,19 +75,21 @@ public class JaCoCoConfiguration {
             .defaultValue(JaCoCoConfiguration.REPORT_PATH_DEFAULT_VALUE)
             .name("UT JaCoCo Report")
             .description(
-                "Path to the JaCoCo report file containing coverage data by unit tests. The path may be absolute or relative to the project base directory.")
+                "Comma-separated list of paths to the JaCoCo report files containing coverage data by unit tests. The paths may be absolute or relative to the project base directory, and may be glob patterns such as 'target/jacoco/*.exec'.")
             .category(Groovy.NAME)
             .subCategory(SUBCATEGORY)
             .onConfigScopes(PropertyDefinition.ConfigScope.PROJECT)
+            .multiValues(true)
             .build(),
         PropertyDefinition.builder(JaCoCoConfiguration.IT_REPORT_PATH_PROPERTY)
             .defaultValue(JaCoCoConfiguration.IT_REPORT_PATH_DEFAULT_VALUE)
             .name("IT JaCoCo Report")
             .description(
-                "Path to the JaCoCo report file containing coverage data by integration tests. The path may be absolute or relative to the project base directory.")
+                "Comma-separated list of paths to the JaCoCo report files containing coverage data by integration tests. The paths may be absolute or relative to the project base directory, and may be glob patterns such as 'target/jacoco/*.exec'.")
             .category(Groovy.NAME)
             .subCategory(SUBCATEGORY)
             .onConfigScopes(PropertyDefinition.ConfigScope.PROJECT)
+            .multiValues(true)
             .build(),
         PropertyDefinition.builder(JaCoCoConfiguration.REPORT_MISSING_FORCE_ZERO)
             .defaultValue(
@@ -102,7 +104,7 @@ public class JaCoCoConfiguration {
         PropertyDefinition.builder(SONAR_GROOVY_BINARIES)
             .name("Binary directories")
             .description(
-                "Comma-separated list of optional directories that contain the compiled groovy sources.")
+                "Comma-separated list of optional directories, jar or zip files that contain the compiled groovy sources.")
             .category(Groovy.NAME)
             .subCategory(SUBCATEGORY)
             .onConfigScopes(PropertyDefinition.ConfigScope.PROJECT)
@@ -19,17 +19,15 @@
  */
 package org.sonar.plugins.groovy.jacoco;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.ExecutionDataWriter;
 import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
-import org.jacoco.core.data.SessionInfoStore;
+import org.sonar.plugins.groovy.utils.ParallelTasks;
 
 /**
  * Utility class to merge JaCoCo reports.
@@ -41,26 +39,56 @@ public class JaCoCoReportMerger {
   private JaCoCoReportMerger() {}
 
   /**
-   * Merge all reports in reportOverall.
+   * Merge all reports in memory, so that they are only read once and no overall report is written.
    *
-   * @param reportOverall destination file of merge.
    * @param reports files to be merged.
+   * @return execution data of all reports, with the probes of classes found in several reports
+   *     merged.
    */
-  public static void mergeReports(Path reportOverall, File... reports) {
-    SessionInfoStore infoStore = new SessionInfoStore();
-    ExecutionDataStore dataStore = new ExecutionDataStore();
-    loadSourceFiles(infoStore, dataStore, reports);
+  public static ExecutionDataStore mergeReports(File... reports) {
+    return mergeReports(Arrays.asList(reports), 1);
+  }
+
+  /**
+   * Merge all reports in memory on {@code threads} threads. Each thread reads its share of the
+   * reports into a store of its own, then the stores are merged pairwise, in parallel, until only
+   * one is left. Probes of a class found in several stores are merged into the array of the first
+   * one, so no execution data is copied.
+   *
+   * @param reports files to be merged.
+   * @param threads number of threads reading and merging reports.
+   * @return execution data of all reports, with the probes of classes found in several reports
+   *     merged.
+   */
+  public static ExecutionDataStore mergeReports(List<File> reports, int threads) {
+    List<ExecutionDataStore> stores =
+        ParallelTasks.map(
+            ParallelTasks.partition(reports, threads), threads, JaCoCoReportMerger::load);
+    while (stores.size() > 1) {
+      List<List<ExecutionDataStore>> pairs = new ArrayList<>();
+      for (int i = 0; i < stores.size(); i += 2) {
+        pairs.add(stores.subList(i, Math.min(i + 2, stores.size())));
+      }
+      stores = ParallelTasks.map(pairs, threads, JaCoCoReportMerger::merge);
+    }
+    return stores.get(0);
+  }
 
-    try (OutputStream fos = Files.newOutputStream(reportOverall);
-        BufferedOutputStream outputStream = new BufferedOutputStream(fos)) {
-      Object visitor;
-      visitor = new ExecutionDataWriter(outputStream);
-      infoStore.accept((ISessionInfoVisitor) visitor);
-      dataStore.accept((IExecutionDataVisitor) visitor);
-    } catch (IOException e) {
-      throw new IllegalStateException(
-          String.format("Unable to write overall coverage report %s", reportOverall), e);
+  /** Sessions are of no use to the sensor, so only the merged execution data is kept. */
+  private static ExecutionDataStore load(List<File> reports) {
+    ExecutionDataVisitor visitor = ExecutionDataVisitor.mergedOnly();
+    loadSourceFiles(visitor, visitor, reports.toArray(new File[0]));
+    return visitor.getMerged();
+  }
+
+  private static ExecutionDataStore merge(List<ExecutionDataStore> stores) {
+    ExecutionDataStore merged = stores.get(0);
+    for (ExecutionDataStore store : stores.subList(1, stores.size())) {
+      for (ExecutionData data : store.getContents()) {
+        merged.put(data);
+      }
     }
+    return merged;
   }
 
   private static void loadSourceFiles(
@@ -0,0 +1,104 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.jacoco;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.api.scan.filesystem.PathResolver;
+
+/**
+ * Resolves the values of the JaCoCo report path properties into report files. Each value is either
+ * a path, absolute or relative to the project base directory, or a glob pattern such as {@code
+ * target/jacoco/*.exec} matching any number of reports.
+ */
+final class JaCoCoReportPaths {
+
+  private static final String GLOB_CHARACTERS = "*?[{";
+
+  private JaCoCoReportPaths() {}
+
+  /**
+   * @return the existing report files matched by {@code paths}, each of them once, in the order of
+   *     the paths and, for a glob pattern, in the order of their names.
+   */
+  static List<File> resolve(PathResolver pathResolver, File baseDir, String... paths) {
+    Set<File> reports = new LinkedHashSet<>();
+    for (String path : paths) {
+      String trimmed = path.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      if (isGlob(trimmed)) {
+        reports.addAll(matching(pathResolver, baseDir, trimmed));
+      } else {
+        File report = pathResolver.relativeFile(baseDir, trimmed);
+        if (report.isFile()) {
+          reports.add(report);
+        }
+      }
+    }
+    return new ArrayList<>(reports);
+  }
+
+  static boolean isGlob(String path) {
+    return path.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0);
+  }
+
+  /**
+   * Only the directory before the first segment holding a glob character is walked, so that a
+   * pattern like {@code target/jacoco/*.exec} does not scan the whole project.
+   */
+  private static List<File> matching(PathResolver pathResolver, File baseDir, String pattern) {
+    String[] segments = pattern.replace('\\', '/').split("/", -1);
+    int firstGlob = 0;
+    while (!isGlob(segments[firstGlob])) {
+      firstGlob++;
+    }
+    String directory = String.join("/", Arrays.copyOfRange(segments, 0, firstGlob));
+    if (directory.isEmpty() && pattern.startsWith("/")) {
+      directory = "/";
+    }
+    Path root = pathResolver.relativeFile(baseDir, directory).toPath();
+    if (!Files.isDirectory(root)) {
+      return new ArrayList<>();
+    }
+    String glob = String.join("/", Arrays.copyOfRange(segments, firstGlob, segments.length));
+    PathMatcher matcher = root.getFileSystem().getPathMatcher("glob:" + glob);
+    try (Stream<Path> files = Files.walk(root)) {
+      return files
+          .filter(Files::isRegularFile)
+          .filter(file -> matcher.matches(root.relativize(file)))
+          .sorted()
+          .map(Path::toFile)
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to search JaCoCo reports matching " + pattern, e);
+    }
+  }
+}
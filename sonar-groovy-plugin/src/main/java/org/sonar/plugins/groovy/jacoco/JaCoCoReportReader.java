@@ -20,20 +20,31 @@
 package org.sonar.plugins.groovy.jacoco;
 
 import java.io.BufferedInputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
 import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
+import org.sonar.plugins.groovy.utils.ParallelTasks;
 
 public class JaCoCoReportReader {
 
@@ -41,11 +52,18 @@ public class JaCoCoReportReader {
   static final String INCOMPATIBLE_JACOCO_ERROR =
       "You are using an incompatible JaCoCo binary format version, please consider upgrading to a supported JaCoCo version (0.8.x).";
 
+  private static final Predicate<byte[]> ALL_CLASSES = classBytes -> true;
+
+  /** Reports larger than this are streamed, as a single buffer can not map them. */
+  private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+  /** Block type, magic number and format version. */
+  private static final int HEADER_SIZE = 5;
+
   @Nullable private final File jacocoExecutionData;
 
   public JaCoCoReportReader(@Nullable File jacocoExecutionData) {
     this.jacocoExecutionData = jacocoExecutionData;
-    verifyCurrentReportFormat(jacocoExecutionData);
   }
 
   /**
@@ -54,7 +72,7 @@ public class JaCoCoReportReader {
    * @param executionDataVisitor visitor to store execution data.
    * @param sessionInfoStore visitor to store info session.
    * @return true if binary format is the latest one.
-   * @throws IOException in case of error or binary format not supported.
+   * @throws IllegalArgumentException in case of error or binary format not supported.
    */
   public JaCoCoReportReader readJacocoReport(
       IExecutionDataVisitor executionDataVisitor, ISessionInfoVisitor sessionInfoStore) {
@@ -63,8 +81,8 @@ public class JaCoCoReportReader {
     }
 
     JaCoCoExtensions.logger().info("Analysing {}", jacocoExecutionData);
-    try (InputStream inputStream =
-        new BufferedInputStream(new FileInputStream(jacocoExecutionData))) {
+    try (FileChannel channel = FileChannel.open(jacocoExecutionData.toPath());
+        InputStream inputStream = openExecutionData(channel)) {
       ExecutionDataReader reader = new ExecutionDataReader(inputStream);
       reader.setSessionInfoVisitor(sessionInfoStore);
       reader.setExecutionDataVisitor(executionDataVisitor);
@@ -76,48 +94,140 @@ public class JaCoCoReportReader {
     return this;
   }
 
-  private static void verifyCurrentReportFormat(@Nullable File jacocoExecutionData) {
-    if (jacocoExecutionData == null) {
-      return;
+  /**
+   * Opens the report once its header is verified. It is mapped, unless too large for a single
+   * buffer. The mapping is only released once garbage collected, so on Windows the report stays
+   * locked for a while after the stream is closed.
+   */
+  private static InputStream openExecutionData(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size > MAX_MAPPED_SIZE) {
+      InputStream inputStream = new BufferedInputStream(Channels.newInputStream(channel));
+      inputStream.mark(HEADER_SIZE);
+      verifyHeader(new DataInputStream(inputStream));
+      inputStream.reset();
+      return inputStream;
     }
-    try (DataInputStream dis = new DataInputStream(new FileInputStream(jacocoExecutionData))) {
-      byte firstByte = dis.readByte();
-      if (firstByte != ExecutionDataWriter.BLOCK_HEADER
-          || dis.readChar() != ExecutionDataWriter.MAGIC_NUMBER) {
-        throw new IllegalStateException();
-      }
-      if (dis.readChar() != ExecutionDataWriter.FORMAT_VERSION) {
-        throw new IllegalArgumentException(
-            INCOMPATIBLE_JACOCO_ERROR);
-      }
-    } catch (IOException | IllegalStateException e) {
-      throw new IllegalArgumentException(
-          String.format(
-              "Unable to read %s to determine JaCoCo binary format.",
-              jacocoExecutionData.getAbsolutePath()),
-          e);
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    verifyHeader(new DataInputStream(new ByteBufferInputStream(buffer.duplicate())));
+    return new ByteBufferInputStream(buffer);
+  }
+
+  private static void verifyHeader(DataInput header) throws IOException {
+    if (header.readByte() != ExecutionDataWriter.BLOCK_HEADER
+        || header.readChar() != ExecutionDataWriter.MAGIC_NUMBER) {
+      throw new IOException("Unable to determine JaCoCo binary format");
+    }
+    if (header.readChar() != ExecutionDataWriter.FORMAT_VERSION) {
+      throw new IllegalArgumentException(INCOMPATIBLE_JACOCO_ERROR);
     }
   }
 
   /** Caller must guarantee that {@code classFiles} are actually class file. */
   public CoverageBuilder analyzeFiles(
       ExecutionDataStore executionDataStore, Collection<File> classFiles) {
+    List<Path> paths = new ArrayList<>(classFiles.size());
+    for (File classFile : classFiles) {
+      paths.add(classFile.toPath());
+    }
+    return analyzeFiles(executionDataStore, paths, ALL_CLASSES);
+  }
+
+  /**
+   * Caller must guarantee that {@code classFiles} are actually class file. They may be entries of
+   * an archive, read through its zip file system.
+   *
+   * @param threads number of workers the class files are sharded across, each with its own JaCoCo
+   *     analyzer; the coverage of classes compiled from the same source file is merged afterwards
+   * @param classFilter decides from the bytes of each class file whether JaCoCo analyses it; it is
+   *     called concurrently
+   */
+  public CoverageBuilder analyzeFiles(
+      ExecutionDataStore executionDataStore,
+      Collection<Path> classFiles,
+      int threads,
+      Predicate<byte[]> classFilter) {
+    if (threads <= 1 || classFiles.size() <= 1) {
+      return analyzeFiles(executionDataStore, classFiles, classFilter);
+    }
+    List<CoverageBuilder> shards =
+        ParallelTasks.map(
+            ParallelTasks.partition(new ArrayList<>(classFiles), threads),
+            threads,
+            shard -> analyzeFiles(executionDataStore, shard, classFilter));
+    CoverageBuilder coverageBuilder = new CoverageBuilder();
+    for (CoverageBuilder shard : shards) {
+      for (IClassCoverage classCoverage : shard.getClasses()) {
+        coverageBuilder.visitCoverage(classCoverage);
+      }
+    }
+    return coverageBuilder;
+  }
+
+  private static CoverageBuilder analyzeFiles(
+      ExecutionDataStore executionDataStore,
+      Collection<Path> classFiles,
+      Predicate<byte[]> classFilter) {
     CoverageBuilder coverageBuilder = new CoverageBuilder();
     Analyzer analyzer = new Analyzer(executionDataStore, coverageBuilder);
-    for (File classFile : classFiles) {
-      analyzeClassFile(analyzer, classFile);
+    for (Path classFile : classFiles) {
+      analyzeClassFile(analyzer, classFile, classFilter);
     }
     return coverageBuilder;
   }
 
   /** Caller must guarantee that {@code classFile} is actually class file. */
-  private static void analyzeClassFile(Analyzer analyzer, File classFile) {
-    try (InputStream inputStream = new FileInputStream(classFile)) {
-      analyzer.analyzeClass(inputStream, classFile.getPath());
+  private static void analyzeClassFile(
+      Analyzer analyzer, Path classFile, Predicate<byte[]> classFilter) {
+    try {
+      byte[] classBytes = Files.readAllBytes(classFile);
+      if (classFilter.test(classBytes)) {
+        analyzer.analyzeClass(classBytes, location(classFile));
+      }
     } catch (IOException e) {
       // (Godin): in fact JaCoCo includes name into exception
       JaCoCoExtensions.logger()
-          .warn("Exception during analysis of file " + classFile.getAbsolutePath(), e);
+          .warn("Exception during analysis of file " + location(classFile.toAbsolutePath()), e);
+    }
+  }
+
+  /** Path of a class file, or URI of an archive entry, which tells the archive it comes from. */
+  private static String location(Path classFile) {
+    return classFile.getFileSystem() == FileSystems.getDefault()
+        ? classFile.toString()
+        : classFile.toUri().toString();
+  }
+
+  /** Streams a buffer to the JaCoCo reader, which only accepts input streams. */
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
     }
   }
 }
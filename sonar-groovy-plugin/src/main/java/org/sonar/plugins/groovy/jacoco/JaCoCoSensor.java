@@ -20,8 +20,12 @@ package org.sonar.plugins.groovy.jacoco;
 
 import java.io.File;
 import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.sensor.Sensor;
@@ -32,13 +36,12 @@ import org.sonar.api.notifications.AnalysisWarnings;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
 
 public class JaCoCoSensor implements Sensor {
 
   private static final Logger LOG = LoggerFactory.getLogger(JaCoCoSensor.class.getName());
 
-  public static final String JACOCO_OVERALL = "jacoco-overall.exec";
-
   private final JaCoCoConfiguration configuration;
   private final GroovyFileSystem fileSystem;
   private final PathResolver pathResolver;
@@ -71,13 +74,15 @@ public class JaCoCoSensor implements Sensor {
   public void execute(SensorContext context) {
     boolean hasXmlReport = hasXmlReport(context);
     File baseDir = fileSystem.baseDir();
-    File reportUTs = pathResolver.relativeFile(baseDir, configuration.getReportPath());
-    File reportITs = pathResolver.relativeFile(baseDir, configuration.getItReportPath());
+    List<File> reportUTs =
+        JaCoCoReportPaths.resolve(pathResolver, baseDir, configuration.getReportPaths());
+    List<File> reportITs =
+        JaCoCoReportPaths.resolve(pathResolver, baseDir, configuration.getItReportPaths());
 
-    if (reportUTs.isFile()) {
+    if (!reportUTs.isEmpty()) {
       warnAboutDeprecatedProperty(hasXmlReport, JaCoCoConfiguration.REPORT_PATH_PROPERTY);
     }
-    if (reportITs.isFile()) {
+    if (!reportITs.isEmpty()) {
       warnAboutDeprecatedProperty(hasXmlReport, JaCoCoConfiguration.IT_REPORT_PATH_PROPERTY);
     }
     if (hasXmlReport) {
@@ -87,10 +92,24 @@ public class JaCoCoSensor implements Sensor {
       return;
     }
 
-    if (shouldExecuteOnProject(reportUTs.isFile(), reportITs.isFile())) {
-      Path reportOverall = context.fileSystem().workDir().toPath().resolve(JACOCO_OVERALL);
-      JaCoCoReportMerger.mergeReports(reportOverall, reportUTs, reportITs);
-      new JaCoCoAnalyzer(fileSystem, settings, reportOverall).analyse(context);
+    if (shouldExecuteOnProject(!reportUTs.isEmpty(), !reportITs.isEmpty())) {
+      Set<File> reports = new LinkedHashSet<>(reportUTs);
+      reports.addAll(reportITs);
+      AnalysisProfiler profiler = AnalysisProfiler.create(context, "JaCoCoSensor");
+      try {
+        ExecutionDataStore executionData;
+        try (AnalysisProfiler.Measure measure = profiler.start("report")) {
+          reports.forEach(report -> measure.file(report.toPath()));
+          executionData =
+              JaCoCoReportMerger.mergeReports(
+                  new ArrayList<>(reports), Groovy.analysisThreads(settings));
+        }
+        try (AnalysisProfiler.Measure measure = profiler.start("coverage")) {
+          new JaCoCoAnalyzer(fileSystem, settings).analyse(context, executionData);
+        }
+      } finally {
+        profiler.report();
+      }
     }
   }
 
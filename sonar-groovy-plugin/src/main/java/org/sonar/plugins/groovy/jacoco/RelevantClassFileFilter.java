@@ -0,0 +1,88 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.jacoco;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.sonar.plugins.groovy.foundation.SourcePathIndex;
+
+/**
+ * Keeps the class files whose coverage can be saved on a Groovy file of the project, so that JaCoCo
+ * does not parse the code of classes whose {@code SourceFile} attribute does not resolve to an
+ * indexed source. Classes without execution data are kept, as their lines are not covered.
+ */
+class RelevantClassFileFilter implements Predicate<byte[]> {
+
+  private final SourcePathIndex sourcePathIndex;
+  private final AtomicInteger skipped = new AtomicInteger();
+
+  RelevantClassFileFilter(SourcePathIndex sourcePathIndex) {
+    this.sourcePathIndex = sourcePathIndex;
+  }
+
+  @Override
+  public boolean test(byte[] classBytes) {
+    boolean relevant;
+    try {
+      relevant = hasIndexedSource(classBytes);
+    } catch (RuntimeException e) {
+      // let JaCoCo report class files it can not read
+      relevant = true;
+    }
+    if (!relevant) {
+      skipped.incrementAndGet();
+    }
+    return relevant;
+  }
+
+  int skipped() {
+    return skipped.get();
+  }
+
+  private boolean hasIndexedSource(byte[] classBytes) {
+    String sourcePath = sourcePath(classBytes);
+    return sourcePath != null && sourcePathIndex.inputFile(sourcePath) != null;
+  }
+
+  /** Path of the source of the class, as JaCoCo builds it from the package and source names. */
+  @CheckForNull
+  static String sourcePath(byte[] classBytes) {
+    ClassReader reader = InstrSupport.classReaderFor(classBytes);
+    String[] sourceFile = new String[1];
+    reader.accept(
+        new ClassVisitor(Opcodes.ASM9) {
+          @Override
+          public void visitSource(String source, String debug) {
+            sourceFile[0] = source;
+          }
+        },
+        ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+    if (sourceFile[0] == null) {
+      return null;
+    }
+    String className = reader.getClassName();
+    int lastSlash = className.lastIndexOf('/');
+    return className.substring(0, lastSlash + 1) + sourceFile[0];
+  }
+}
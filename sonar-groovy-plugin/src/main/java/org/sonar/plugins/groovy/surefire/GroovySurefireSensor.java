@@ -32,6 +32,7 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.surefire.api.SurefireUtils;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
 
 @DependedUpon("surefire-java")
 public class GroovySurefireSensor implements Sensor {
@@ -67,7 +68,12 @@ public class GroovySurefireSensor implements Sensor {
 
   protected void collect(SensorContext context, List<File> reportsDirs) {
     LOGGER.info("parsing {}", reportsDirs);
-    groovySurefireParser.collect(context, reportsDirs);
+    AnalysisProfiler profiler = AnalysisProfiler.create(settings, fs, "GroovySurefireSensor");
+    try (AnalysisProfiler.Measure measure = profiler.start("report")) {
+      groovySurefireParser.collect(context, reportsDirs);
+    } finally {
+      profiler.report();
+    }
   }
 
   @Override
@@ -0,0 +1,244 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+
+/**
+ * Per-file results of a previous analysis, stored in the scanner cache.
+ *
+ * <p>An entry is only reused when the file is unchanged since the previous analysis, according to
+ * {@link InputFile#status()}, and when it was computed with the same settings and by the same
+ * versions of the plugin and of the embedded CodeNarc and GMetrics. Entries are copied to the next
+ * analysis when reused, and written when computed again. When the scanner cache is disabled,
+ * nothing is read or written.
+ *
+ * <p>Entries are written through {@link #newBuffer() buffers} that spool large entries to the work
+ * directory, so that the results of large files are never held on the heap as a whole.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisCache.class);
+
+  private static final int FORMAT_VERSION = 3;
+
+  private static final int IN_MEMORY_BYTES = 1024 * 1024;
+
+  /** Versions of the code the cached results were computed by. */
+  static final String ANALYZER_VERSIONS =
+      "plugin "
+          + AnalysisCache.class.getPackage().getImplementationVersion()
+          + ", CodeNarc "
+          + versionResource("/codenarc-version.txt")
+          + ", GMetrics "
+          + versionResource("/gmetrics-version.txt");
+
+  private final boolean enabled;
+  private final String namespace;
+  private final byte[] fingerprint;
+  private final int inMemoryBytes;
+  @Nullable private final Path workDir;
+  @Nullable private final ReadCache previousCache;
+  @Nullable private final WriteCache nextCache;
+
+  /**
+   * @param namespace distinguishes the entries of each sensor
+   * @param fingerprint settings the results depend on, such as active rules and their parameters
+   */
+  public AnalysisCache(SensorContext context, String namespace, String fingerprint) {
+    this(context, namespace, fingerprint, IN_MEMORY_BYTES);
+  }
+
+  /** @param inMemoryBytes size beyond which buffers are spooled to the work directory */
+  AnalysisCache(SensorContext context, String namespace, String fingerprint, int inMemoryBytes) {
+    this.enabled = context.isCacheEnabled();
+    this.namespace = namespace;
+    this.fingerprint = (ANALYZER_VERSIONS + "\n" + fingerprint).getBytes(StandardCharsets.UTF_8);
+    this.inMemoryBytes = inMemoryBytes;
+    this.workDir = enabled ? context.fileSystem().workDir().toPath() : null;
+    this.previousCache = enabled ? context.previousCache() : null;
+    this.nextCache = enabled ? context.nextCache() : null;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @FunctionalInterface
+  public interface EntryReader<T> {
+    T read(DataInput in) throws IOException;
+  }
+
+  @FunctionalInterface
+  public interface EntryWriter {
+    void write(DataOutput out) throws IOException;
+  }
+
+  /**
+   * Returns the results cached for the file, or null when there are none or when the file changed.
+   * Results that are returned are carried over to the next analysis.
+   */
+  @CheckForNull
+  public <T> T read(InputFile inputFile, EntryReader<T> reader) {
+    if (!enabled || inputFile.status() != InputFile.Status.SAME) {
+      return null;
+    }
+    String key = key(inputFile);
+    try {
+      byte[] entry = readEntry(key);
+      if (entry == null) {
+        return null;
+      }
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+      if (in.readInt() != FORMAT_VERSION || !Arrays.equals(readBytes(in), fingerprint)) {
+        return null;
+      }
+      T result = reader.read(in);
+      synchronized (this) {
+        nextCache.copyFromPrevious(key);
+      }
+      return result;
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Ignoring cached results of {}", inputFile, e);
+      return null;
+    }
+  }
+
+  /** Stores the results computed for the file. */
+  public void write(InputFile inputFile, EntryWriter writer) {
+    if (!enabled) {
+      return;
+    }
+    DeferredFileOutputStream buffer = newBuffer();
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(buffer))) {
+        out.writeInt(FORMAT_VERSION);
+        writeBytes(out, fingerprint);
+        writer.write(out);
+      }
+      try (InputStream entry = buffer.toInputStream()) {
+        synchronized (this) {
+          nextCache.write(key(inputFile), entry);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Unable to cache results of {}", inputFile, e);
+    } finally {
+      discard(buffer);
+    }
+  }
+
+  /**
+   * Opens a buffer for results to be cached, kept on the heap while small and spooled to the work
+   * directory beyond. It must be {@link #discard discarded} once read. Only for enabled caches.
+   */
+  public DeferredFileOutputStream newBuffer() {
+    return DeferredFileOutputStream.builder()
+        .setThreshold(inMemoryBytes)
+        .setPrefix("groovy-cache")
+        .setSuffix(".tmp")
+        .setDirectory(workDir)
+        .get();
+  }
+
+  /** Closes a buffer from {@link #newBuffer()} and deletes its spool file, if any. */
+  public static void discard(DeferredFileOutputStream buffer) {
+    try {
+      buffer.close();
+      if (!buffer.isInMemory()) {
+        Files.deleteIfExists(buffer.getPath());
+      }
+    } catch (IOException e) {
+      LOG.debug("Unable to delete cache buffer {}", buffer.getPath(), e);
+    }
+  }
+
+  public static void writeString(DataOutput out, @Nullable String value) throws IOException {
+    writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @CheckForNull
+  public static String readString(DataInput in) throws IOException {
+    byte[] bytes = readBytes(in);
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @CheckForNull
+  private synchronized byte[] readEntry(String key) throws IOException {
+    if (!previousCache.contains(key)) {
+      return null;
+    }
+    try (InputStream in = previousCache.read(key)) {
+      return in.readAllBytes();
+    }
+  }
+
+  private String key(InputFile inputFile) {
+    return "groovy:" + namespace + ":" + inputFile.key();
+  }
+
+  @CheckForNull
+  private static String versionResource(String name) {
+    try (InputStream in = AnalysisCache.class.getResourceAsStream(name)) {
+      return in == null ? null : new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void writeBytes(DataOutput out, @Nullable byte[] bytes) throws IOException {
+    if (bytes == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static byte[] readBytes(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.config.Configuration;
+
+/**
+ * Records where a sensor spends its time, phase by phase: wall time, CPU time, allocated bytes,
+ * and the number and size of the files processed.
+ *
+ * <p>A phase is measured by any number of {@link Measure}s, each opened and closed on the same
+ * thread, so that work spread over worker threads is measured by each worker. Wall time, CPU time
+ * and allocation are summed over all measures, the latter two when the JVM supports them. Phases
+ * interleaved file by file thus report their own share of the time, while the span from the first
+ * measure of a phase to its last is reported separately.
+ *
+ * <p>Profiles are logged at debug level, and written as JSON to the work directory when {@value
+ * #PROFILE_KEY} is set. Otherwise nothing is measured.
+ */
+public final class AnalysisProfiler {
+
+  public static final String PROFILE_KEY = "sonar.groovy.analysis.profile";
+  static final String REPORT_DIRECTORY = "groovy-profile";
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisProfiler.class);
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private static final AnalysisProfiler DISABLED = new AnalysisProfiler("", false, null);
+
+  private static final long UNAVAILABLE = -1;
+
+  private final String sensor;
+  private final boolean enabled;
+  @Nullable private final Path report;
+  private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+  private AnalysisProfiler(String sensor, boolean enabled, @Nullable Path report) {
+    this.sensor = sensor;
+    this.enabled = enabled;
+    this.report = report;
+  }
+
+  /** Profiles a sensor with the settings and file system of its context. */
+  public static AnalysisProfiler create(SensorContext context, String sensor) {
+    return create(context.config(), context.fileSystem(), sensor);
+  }
+
+  /**
+   * @param sensor names the sensor in logs, and the JSON file of its profile
+   */
+  public static AnalysisProfiler create(
+      Configuration settings, FileSystem fileSystem, String sensor) {
+    boolean writeReport = settings.getBoolean(PROFILE_KEY).orElse(false);
+    if (!writeReport && !LOG.isDebugEnabled()) {
+      return DISABLED;
+    }
+    Path report =
+        writeReport
+            ? fileSystem.workDir().toPath().resolve(REPORT_DIRECTORY).resolve(sensor + ".json")
+            : null;
+    return new AnalysisProfiler(sensor, true, report);
+  }
+
+  /** A profiler that measures nothing, for code run outside of a sensor. */
+  public static AnalysisProfiler disabled() {
+    return DISABLED;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Starts measuring {@code phase} on the current thread, until the measure is closed. */
+  public Measure start(String phase) {
+    if (!enabled) {
+      return new Measure(null);
+    }
+    synchronized (phases) {
+      return new Measure(phases.computeIfAbsent(phase, Phase::new));
+    }
+  }
+
+  /** Logs the profile of every phase, then writes it to the work directory if requested. */
+  public void report() {
+    if (!enabled) {
+      return;
+    }
+    List<Phase> measured;
+    synchronized (phases) {
+      measured = new ArrayList<>(phases.values());
+    }
+    for (Phase phase : measured) {
+      LOG.debug("{} {}", sensor, phase);
+    }
+    if (report != null) {
+      write(report, measured);
+    }
+  }
+
+  private void write(Path path, List<Phase> measured) {
+    try {
+      Files.createDirectories(path.getParent());
+      try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+        writer.write("{\"sensor\":" + quote(sensor) + ",\"phases\":[");
+        for (int i = 0; i < measured.size(); i++) {
+          writer.write(i == 0 ? "\n" : ",\n");
+          writer.write(measured.get(i).toJson());
+        }
+        writer.write("\n]}\n");
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write analysis profile {}", path, e);
+    }
+  }
+
+  private static String quote(String value) {
+    return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+
+  private static long cpuTime() {
+    if (THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()) {
+      return THREADS.getCurrentThreadCpuTime();
+    }
+    return UNAVAILABLE;
+  }
+
+  private static long allocatedBytes() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+      if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads.getCurrentThreadAllocatedBytes();
+      }
+    }
+    return UNAVAILABLE;
+  }
+
+  private static long since(long start, long end) {
+    return start == UNAVAILABLE || end == UNAVAILABLE ? UNAVAILABLE : end - start;
+  }
+
+  /** One measurement of a phase, on a single thread. */
+  public static final class Measure implements AutoCloseable {
+    @Nullable private final Phase phase;
+    private final long startWall;
+    private final long startCpu;
+    private final long startAllocated;
+    private int files;
+    private long bytes;
+
+    private Measure(@Nullable Phase phase) {
+      this.phase = phase;
+      this.startWall = phase == null ? 0 : System.nanoTime();
+      this.startCpu = phase == null ? UNAVAILABLE : cpuTime();
+      this.startAllocated = phase == null ? UNAVAILABLE : allocatedBytes();
+    }
+
+    /** Counts a processed file, and the bytes read from it. */
+    public Measure file(Path path) {
+      if (phase != null) {
+        files++;
+        try {
+          bytes += Files.size(path);
+        } catch (IOException e) {
+          // Only the size is missing from the profile
+        }
+      }
+      return this;
+    }
+
+    /** Counts processed files, whose size is not known. */
+    public Measure files(int count) {
+      if (phase != null) {
+        files += count;
+      }
+      return this;
+    }
+
+    @Override
+    public void close() {
+      if (phase != null) {
+        phase.add(
+            startWall,
+            System.nanoTime(),
+            since(startCpu, cpuTime()),
+            since(startAllocated, allocatedBytes()),
+            files,
+            bytes);
+      }
+    }
+  }
+
+  private static final class Phase {
+    private final String name;
+    private int measures;
+    private long firstStart;
+    private long lastEnd;
+    private long wallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+    private long files;
+    private long bytes;
+
+    Phase(String name) {
+      this.name = name;
+    }
+
+    synchronized void add(
+        long start, long end, long cpu, long allocated, int measuredFiles, long measuredBytes) {
+      firstStart = measures == 0 ? start : Math.min(firstStart, start);
+      lastEnd = measures == 0 ? end : Math.max(lastEnd, end);
+      wallNanos += end - start;
+      cpuNanos = sum(cpuNanos, cpu);
+      allocatedBytes = sum(allocatedBytes, allocated);
+      files += measuredFiles;
+      bytes += measuredBytes;
+      measures++;
+    }
+
+    /** Once a measure lacks a value, so does the whole phase. */
+    private static long sum(long total, long value) {
+      return total == UNAVAILABLE || value == UNAVAILABLE ? UNAVAILABLE : total + value;
+    }
+
+    synchronized String toJson() {
+      return String.format(
+          Locale.ROOT,
+          "{\"name\":%s,\"measures\":%d,\"files\":%d,\"bytes\":%d,\"wallMs\":%.3f,"
+              + "\"spanMs\":%.3f,\"cpuMs\":%s,\"allocatedBytes\":%s}",
+          quote(name),
+          measures,
+          files,
+          bytes,
+          millis(wallNanos),
+          millis(lastEnd - firstStart),
+          cpuNanos == UNAVAILABLE ? "null" : String.format(Locale.ROOT, "%.3f", millis(cpuNanos)),
+          allocatedBytes == UNAVAILABLE ? "null" : Long.toString(allocatedBytes));
+    }
+
+    @Override
+    public synchronized String toString() {
+      return String.format(
+          Locale.ROOT,
+          "%s: %d files, %d bytes in %.1f ms wall over a %.1f ms span, %s ms CPU,"
+              + " %s bytes allocated",
+          name,
+          files,
+          bytes,
+          millis(wallNanos),
+          millis(lastEnd - firstStart),
+          cpuNanos == UNAVAILABLE ? "n/a" : String.format(Locale.ROOT, "%.1f", millis(cpuNanos)),
+          allocatedBytes == UNAVAILABLE ? "n/a" : Long.toString(allocatedBytes));
+    }
+
+    private static double millis(long nanos) {
+      return nanos / 1_000_000.0;
+    }
+  }
+}
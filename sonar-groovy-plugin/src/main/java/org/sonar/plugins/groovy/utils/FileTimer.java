@@ -0,0 +1,248 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Times the analysis of each file, to report the slowest ones, and bounds it by a time budget.
+ *
+ * <p>Without a budget, files are analysed on the calling thread. With one, each file is analysed
+ * on a thread of its own, and abandoned once the budget is spent: the analysis goes on in the
+ * background, since neither CodeNarc nor GMetrics can be interrupted, but its results are ignored
+ * and the caller moves on to the next file.
+ *
+ * <p>Abandoned analyses keep their thread and CPU until they end, so at most {@link
+ * #MAX_ABANDONED_ANALYSES} of them may run at once in the scanner. Once that many are running,
+ * files are analysed on the calling thread without a budget, which keeps the number of threads
+ * bounded by the number of callers plus that limit.
+ */
+public final class FileTimer implements AutoCloseable {
+
+  static final int SLOWEST_FILES = 10;
+
+  static final int MAX_ABANDONED_ANALYSES = 4;
+
+  private static final int RUNNING = 0;
+  private static final int DONE = 1;
+  private static final int ABANDONED = 2;
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileTimer.class);
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  /** Abandoned analyses still running, across all timers. */
+  private static final AtomicInteger ABANDONED_RUNNING = new AtomicInteger();
+
+  private static final ThreadFactory THREAD_FACTORY =
+      runnable -> {
+        Thread thread =
+            new Thread(runnable, "groovy-timed-analysis-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      };
+
+  private final String analysis;
+  private final long budgetMillis;
+  private final PriorityQueue<Timing> slowest =
+      new PriorityQueue<>(Comparator.comparingLong(timing -> timing.nanos));
+  private final AtomicInteger skipped = new AtomicInteger();
+  private final AtomicBoolean budgetSuspended = new AtomicBoolean();
+  private ExecutorService executor;
+
+  /**
+   * @param analysis names the analysis in logs
+   * @param budgetMillis time after which the analysis of a file is abandoned, or 0 for no limit
+   */
+  public FileTimer(String analysis, long budgetMillis) {
+    this.analysis = analysis;
+    this.budgetMillis = budgetMillis;
+  }
+
+  /**
+   * Analyses a single file.
+   *
+   * @return the results of the analysis, or null if it was abandoned after the time budget
+   */
+  @CheckForNull
+  public <T> T time(InputFile inputFile, Supplier<T> fileAnalysis) {
+    long start = System.nanoTime();
+    T result = budgetMillis > 0 ? withinBudget(inputFile, fileAnalysis) : fileAnalysis.get();
+    record(inputFile, System.nanoTime() - start);
+    return result;
+  }
+
+  @CheckForNull
+  private <T> T withinBudget(InputFile inputFile, Supplier<T> fileAnalysis) {
+    if (ABANDONED_RUNNING.get() >= MAX_ABANDONED_ANALYSES) {
+      if (budgetSuspended.compareAndSet(false, true)) {
+        LOG.warn(
+            "{} abandoned analyses are still running, {} analysis goes on without time budget",
+            MAX_ABANDONED_ANALYSES,
+            analysis);
+      }
+      return fileAnalysis.get();
+    }
+    AtomicInteger state = new AtomicInteger(RUNNING);
+    Future<T> future =
+        executor()
+            .submit(
+                () -> {
+                  try {
+                    return fileAnalysis.get();
+                  } finally {
+                    if (!state.compareAndSet(RUNNING, DONE)) {
+                      ABANDONED_RUNNING.decrementAndGet();
+                    }
+                  }
+                });
+    try {
+      try {
+        return future.get(budgetMillis, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        if (!state.compareAndSet(RUNNING, ABANDONED)) {
+          // finished right after the budget was spent
+          return future.get();
+        }
+        ABANDONED_RUNNING.incrementAndGet();
+        skipped.incrementAndGet();
+        LOG.warn(
+            "{} analysis of {} took more than {} ms, the file is skipped while its analysis keeps"
+                + " running in the background",
+            analysis,
+            inputFile,
+            budgetMillis);
+        return null;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while analysing " + inputFile, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private synchronized ExecutorService executor() {
+    if (executor == null) {
+      executor = Executors.newCachedThreadPool(THREAD_FACTORY);
+    }
+    return executor;
+  }
+
+  private void record(InputFile inputFile, long nanos) {
+    synchronized (slowest) {
+      if (slowest.size() < SLOWEST_FILES) {
+        slowest.add(new Timing(inputFile, nanos));
+      } else if (slowest.peek().nanos < nanos) {
+        slowest.poll();
+        slowest.add(new Timing(inputFile, nanos));
+      }
+    }
+  }
+
+  /** Abandoned analyses still running in the background, across all timers. */
+  static int abandonedRunning() {
+    return ABANDONED_RUNNING.get();
+  }
+
+  /** Number of files abandoned after the time budget. */
+  public int skipped() {
+    return skipped.get();
+  }
+
+  /** The slowest files analysed so far, the slowest first. */
+  public List<InputFile> slowestFiles() {
+    List<InputFile> files = new ArrayList<>();
+    for (Timing timing : sortedTimings()) {
+      files.add(timing.inputFile);
+    }
+    return files;
+  }
+
+  private List<Timing> sortedTimings() {
+    List<Timing> timings;
+    synchronized (slowest) {
+      timings = new ArrayList<>(slowest);
+    }
+    timings.sort(Comparator.comparingLong((Timing timing) -> timing.nanos).reversed());
+    return timings;
+  }
+
+  /** Logs the slowest files, and how many were skipped. */
+  public void logSlowest() {
+    if (LOG.isDebugEnabled()) {
+      for (Timing timing : sortedTimings()) {
+        LOG.debug(
+            "Slowest {} analysis: {} ms for {}",
+            analysis,
+            TimeUnit.NANOSECONDS.toMillis(timing.nanos),
+            timing.inputFile);
+      }
+    }
+    if (skipped.get() > 0) {
+      LOG.warn(
+          "{} analysis skipped {} file(s) that took more than {} ms",
+          analysis,
+          skipped.get(),
+          budgetMillis);
+    }
+  }
+
+  /** Lets abandoned analyses finish in the background, without waiting for them. */
+  @Override
+  public synchronized void close() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  private static final class Timing {
+    final InputFile inputFile;
+    final long nanos;
+
+    Timing(InputFile inputFile, long nanos) {
+      this.inputFile = inputFile;
+      this.nanos = nanos;
+    }
+  }
+}
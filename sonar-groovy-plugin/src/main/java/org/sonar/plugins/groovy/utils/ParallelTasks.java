@@ -0,0 +1,200 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs independent tasks on a bounded pool of worker threads. With a single thread, tasks run
+ * sequentially on the calling thread.
+ */
+public final class ParallelTasks {
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private static final ThreadFactory THREAD_FACTORY =
+      runnable -> {
+        Thread thread = new Thread(runnable, "groovy-analysis-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      };
+
+  private ParallelTasks() {}
+
+  public static <T> void forEach(
+      Collection<? extends T> items, int threads, Consumer<? super T> action) {
+    map(
+        items,
+        threads,
+        item -> {
+          action.accept(item);
+          return null;
+        });
+  }
+
+  /**
+   * Applies {@code function} to every item and returns the results in the iteration order of
+   * {@code items}, whatever the order in which they were computed.
+   */
+  public static <T, R> List<R> map(
+      Collection<? extends T> items, int threads, Function<? super T, ? extends R> function) {
+    List<R> results = new ArrayList<>(items.size());
+    if (threads <= 1 || items.size() <= 1) {
+      for (T item : items) {
+        results.add(function.apply(item));
+      }
+      return results;
+    }
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(threads, items.size()), THREAD_FACTORY);
+    try {
+      List<Future<? extends R>> futures = new ArrayList<>(items.size());
+      for (T item : items) {
+        futures.add(executor.submit(() -> function.apply(item)));
+      }
+      for (Future<? extends R> future : futures) {
+        results.add(await(future));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Applies {@code producer} to every item on worker threads, and hands everything they produce to
+   * {@code consumer} on the calling thread. Produced elements go through a queue of at most {@code
+   * capacity} elements, so producers wait for the consumer rather than piling results up in memory.
+   */
+  public static <T, R> void produceAndConsume(
+      Collection<? extends T> items,
+      int threads,
+      int capacity,
+      BiConsumer<? super T, Consumer<R>> producer,
+      Consumer<? super R> consumer) {
+    if (threads <= 1 || items.size() <= 1) {
+      for (T item : items) {
+        producer.accept(item, consumer::accept);
+      }
+      return;
+    }
+
+    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(capacity);
+    Object done = new Object();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(threads, items.size()), THREAD_FACTORY);
+    try {
+      List<Future<?>> futures = new ArrayList<>(items.size());
+      for (T item : items) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  try {
+                    producer.accept(item, element -> put(queue, element));
+                  } finally {
+                    put(queue, done);
+                  }
+                }));
+      }
+      int running = items.size();
+      while (running > 0) {
+        Object element = take(queue);
+        if (element == done) {
+          running--;
+        } else {
+          @SuppressWarnings("unchecked")
+          R produced = (R) element;
+          consumer.accept(produced);
+        }
+      }
+      for (Future<?> future : futures) {
+        await(future);
+      }
+    } finally {
+      // Also releases producers waiting on a full queue if the consumer failed
+      executor.shutdownNow();
+    }
+  }
+
+  private static void put(BlockingQueue<Object> queue, Object element) {
+    try {
+      queue.put(element);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while queueing analysis results", e);
+    }
+  }
+
+  private static Object take(BlockingQueue<Object> queue) {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for analysis results", e);
+    }
+  }
+
+  /**
+   * Splits {@code items} in at most {@code count} partitions of nearly equal sizes. The items are
+   * dealt round-robin, which spreads large neighbouring files across workers.
+   */
+  public static <T> List<List<T>> partition(List<? extends T> items, int count) {
+    int partitionCount = Math.max(1, Math.min(count, items.size()));
+    List<List<T>> partitions = new ArrayList<>(partitionCount);
+    for (int i = 0; i < partitionCount; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    for (int i = 0; i < items.size(); i++) {
+      partitions.get(i % partitionCount).add(items.get(i));
+    }
+    return partitions;
+  }
+
+  private static <R> R await(Future<R> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for analysis tasks", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class FileBaseMetricsTest {
+
+  @Test
+  public void count_lines_made_only_of_comment_delimiters() {
+    assertThat(FileBaseMetrics.numberEmptyLines("/**\n * Javadoc\n *\n */")).isEqualTo(3);
+    assertThat(FileBaseMetrics.numberEmptyLines("/*\r\n  text\r\n*/")).isEqualTo(2);
+    assertThat(FileBaseMetrics.numberEmptyLines("/* text\r */")).isEqualTo(1);
+    assertThat(FileBaseMetrics.numberEmptyLines("//")).isEqualTo(1);
+    assertThat(FileBaseMetrics.numberEmptyLines("// text")).isZero();
+    assertThat(FileBaseMetrics.numberEmptyLines("/* **\n ** */")).isZero();
+  }
+
+  @Test
+  public void ignore_blank_lines() {
+    assertThat(FileBaseMetrics.numberEmptyLines("/*\n\n   \n*/\n")).isEqualTo(2);
+  }
+}
@@ -28,12 +28,18 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
+import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.measure.Metric;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.internal.MapSettings;
@@ -41,20 +47,30 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
+import org.sonar.plugins.groovy.utils.InMemoryCache;
 
 public class GroovySensorTest {
 
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
   private MapSettings settings = new MapSettings();
   private FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
   private DefaultFileSystem fileSystem = new DefaultFileSystem(Paths.get("."));
   private GroovySensor sensor =
-      new GroovySensor(settings.asConfig(), fileLinesContextFactory, fileSystem);
+      new GroovySensor(
+          settings.asConfig(), fileLinesContextFactory, fileSystem, new GroovyAstCache());
 
   @Test
   public void do_nothing_when_no_groovy_file() throws IOException {
     SensorContextTester context = SensorContextTester.create(Paths.get("."));
     context = Mockito.spy(context);
-    sensor = new GroovySensor(settings.asConfig(), fileLinesContextFactory, context.fileSystem());
+    sensor =
+        new GroovySensor(
+            settings.asConfig(),
+            fileLinesContextFactory,
+            context.fileSystem(),
+            new GroovyAstCache());
     sensor.execute(context);
 
     Mockito.verify(context, Mockito.never()).newHighlighting();
@@ -70,6 +86,52 @@ public class GroovySensorTest {
     testMetrics(true, 3);
   }
 
+  @Test
+  public void compute_metrics_with_several_threads() throws IOException {
+    settings.setProperty(Groovy.ANALYSIS_THREADS_KEY, 3);
+    String source =
+        new String(
+            Files.readAllBytes(TestUtils.getResource(getClass(), "../gmetrics/Greeting.groovy")),
+            StandardCharsets.UTF_8);
+    Path baseDir = temp.newFolder().toPath();
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    fileSystem = context.fileSystem();
+    for (int i = 0; i < 7; i++) {
+      Path sourceFile = baseDir.resolve("Greeting" + i + ".groovy");
+      Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+      fileSystem.add(
+          TestInputFileBuilder.create("", baseDir.toFile(), sourceFile.toFile())
+              .setLanguage(Groovy.KEY)
+              .setContents(source)
+              .setCharset(StandardCharsets.UTF_8)
+              .build());
+    }
+
+    FileLinesContext fileLinesContext = mock(FileLinesContext.class);
+    when(fileLinesContextFactory.createFor(any(DefaultInputFile.class)))
+        .thenReturn(fileLinesContext);
+
+    new GroovySensor(settings.asConfig(), fileLinesContextFactory, fileSystem, new GroovyAstCache())
+        .execute(context);
+
+    // Highlighting and CPD tokens of every file are saved by the worker that lexed it
+    int cpdTokens = context.cpdTokens(":Greeting0.groovy").size();
+    assertThat(cpdTokens).isPositive();
+    for (int i = 0; i < 7; i++) {
+      String key = ":Greeting" + i + ".groovy";
+      assertThat(context.measure(key, CoreMetrics.CLASSES).value()).isEqualTo(2);
+      assertThat(context.measure(key, CoreMetrics.FUNCTIONS).value()).isEqualTo(2);
+      assertThat(context.measure(key, CoreMetrics.NCLOC).value()).isEqualTo(17);
+      assertThat(context.measure(key, CoreMetrics.COMMENT_LINES).value()).isEqualTo(5);
+      assertThat(context.measure(key, CoreMetrics.COMPLEXITY).value()).isEqualTo(4);
+      assertThat(context.highlightingTypeAt(key, 7, 0)).containsOnly(TypeOfText.KEYWORD);
+      assertThat(context.cpdTokens(key)).hasSize(cpdTokens);
+    }
+    Mockito.verify(fileLinesContext, Mockito.times(7 * 17))
+        .setIntValue(Mockito.eq(CoreMetrics.NCLOC_DATA_KEY), anyInt(), Mockito.eq(1));
+    Mockito.verify(fileLinesContext, Mockito.times(7)).save();
+  }
+
   private void testMetrics(boolean headerComment, int expectedCommentMetric) throws IOException {
     settings.setProperty(GroovySensor.IGNORE_HEADER_COMMENTS, headerComment);
 
@@ -89,7 +151,9 @@ public class GroovySensorTest {
     when(fileLinesContextFactory.createFor(any(DefaultInputFile.class)))
         .thenReturn(fileLinesContext);
 
-    sensor = new GroovySensor(settings.asConfig(), fileLinesContextFactory, fileSystem);
+    sensor =
+        new GroovySensor(
+            settings.asConfig(), fileLinesContextFactory, fileSystem, new GroovyAstCache());
     sensor.execute(context);
 
     String key = groovyFile.key();
@@ -102,6 +166,12 @@ public class GroovySensorTest {
 
     assertThat(context.measure(key, CoreMetrics.COMPLEXITY).value()).isEqualTo(4);
 
+    // Highlighting and CPD tokens come from the same lexing pass as the base metrics
+    assertThat(context.highlightingTypeAt(key, 1, 0))
+        .containsOnly(TypeOfText.STRUCTURED_COMMENT);
+    assertThat(context.highlightingTypeAt(key, 7, 0)).containsOnly(TypeOfText.KEYWORD);
+    assertThat(context.cpdTokens(key)).isNotEmpty();
+
     // 11 times for comment because we register comment even when ignoring header comment
     Mockito.verify(fileLinesContext, Mockito.times(17))
         .setIntValue(Mockito.eq(CoreMetrics.NCLOC_DATA_KEY), anyInt(), Mockito.eq(1));
@@ -110,6 +180,64 @@ public class GroovySensorTest {
     Mockito.verify(fileLinesContext, Mockito.times(1)).save();
   }
 
+  @Test
+  public void reuse_cached_results_of_unchanged_files() throws IOException {
+    Path sourceFile = TestUtils.getResource(getClass(), "../gmetrics/Greeting.groovy");
+    FileLinesContext fileLinesContext = mock(FileLinesContext.class);
+    when(fileLinesContextFactory.createFor(any(DefaultInputFile.class)))
+        .thenReturn(fileLinesContext);
+
+    InMemoryCache firstAnalysis = new InMemoryCache();
+    SensorContextTester first = contextWithCache(sourceFile, new InMemoryCache(), firstAnalysis);
+    new GroovySensor(
+            settings.asConfig(), fileLinesContextFactory, first.fileSystem(), new GroovyAstCache())
+        .execute(first);
+
+    InMemoryCache secondAnalysis = firstAnalysis.next();
+    SensorContextTester second = contextWithCache(sourceFile, firstAnalysis, secondAnalysis);
+    GroovyAstCache astCache = mock(GroovyAstCache.class);
+    new GroovySensor(settings.asConfig(), fileLinesContextFactory, second.fileSystem(), astCache)
+        .execute(second);
+
+    FileSystem fs = second.fileSystem();
+    String key = fs.inputFiles(fs.predicates().all()).iterator().next().key();
+    for (Metric<Integer> metric :
+        Arrays.asList(
+            CoreMetrics.NCLOC,
+            CoreMetrics.COMMENT_LINES,
+            CoreMetrics.CLASSES,
+            CoreMetrics.FUNCTIONS,
+            CoreMetrics.COMPLEXITY)) {
+      assertThat(second.measure(key, metric).value()).isEqualTo(first.measure(key, metric).value());
+    }
+    assertThat(second.highlightingTypeAt(key, 7, 0)).containsOnly(TypeOfText.KEYWORD);
+    assertThat(second.cpdTokens(key)).hasSameSizeAs(first.cpdTokens(key));
+    assertThat(secondAnalysis.keys()).hasSize(2).isEqualTo(firstAnalysis.keys());
+    Mockito.verify(fileLinesContext, Mockito.times(34))
+        .setIntValue(Mockito.eq(CoreMetrics.NCLOC_DATA_KEY), anyInt(), Mockito.eq(1));
+    Mockito.verify(astCache).finished(GroovyAstCache.GMETRICS);
+    Mockito.verifyNoMoreInteractions(astCache);
+  }
+
+  private SensorContextTester contextWithCache(
+      Path sourceFile, InMemoryCache previousCache, InMemoryCache nextCache) throws IOException {
+    SensorContextTester context = SensorContextTester.create(sourceFile.getParent());
+    context
+        .fileSystem()
+        .add(
+            TestInputFileBuilder.create("", sourceFile.getParent().toFile(), sourceFile.toFile())
+                .setLanguage(Groovy.KEY)
+                .setContents(new String(Files.readAllBytes(sourceFile), StandardCharsets.UTF_8))
+                .setCharset(StandardCharsets.UTF_8)
+                .setStatus(InputFile.Status.SAME)
+                .build());
+    context.fileSystem().setWorkDir(temp.newFolder().toPath());
+    context.setCacheEnabled(true);
+    context.setPreviousCache(previousCache);
+    context.setNextCache(nextCache);
+    return context;
+  }
+
   @Test
   public void test_toString() {
     assertThat(sensor).hasToString("GroovySensor");
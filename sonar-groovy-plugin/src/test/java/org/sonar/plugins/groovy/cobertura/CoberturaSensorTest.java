@@ -96,6 +96,33 @@ public class CoberturaSensorTest {
     assertThat(context.lineHits(":com/test/web/EmptyResultException.java", 16)).isNull();
   }
 
+  @Test
+  public void should_resolve_paths_against_every_file() {
+    SensorContextTester context = SensorContextTester.create(Paths.get("."));
+    DefaultFileSystem fs = context.fileSystem();
+    fs.add(
+        TestInputFileBuilder.create("", "grails-app/conf/BuildConfig.groovy")
+            .setLanguage(Groovy.KEY)
+            .setType(Type.TEST)
+            .setLines(Integer.MAX_VALUE)
+            .build());
+    // Not Groovy, but as ambiguous as it was when matched by path pattern
+    fs.add(
+        TestInputFileBuilder.create("", "web-app/LoggingFilters.groovy").setLanguage("js").build());
+    fs.add(
+        TestInputFileBuilder.create("", "grails-app/conf/LoggingFilters.groovy")
+            .setLanguage(Groovy.KEY)
+            .setType(Type.MAIN)
+            .setLines(Integer.MAX_VALUE)
+            .build());
+
+    sensor = new CoberturaSensor(settings.asConfig(), fs);
+    sensor.execute(context);
+
+    assertThat(context.lineHits(":grails-app/conf/BuildConfig.groovy", 2)).isZero();
+    assertThat(context.lineHits(":grails-app/conf/LoggingFilters.groovy", 2)).isNull();
+  }
+
   @Test
   public void should_not_save_any_measure_if_files_can_not_be_found() {
     FileSystem mockfileSystem = mock(FileSystem.class);
@@ -0,0 +1,65 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+
+public class ActiveRuleKeysTest {
+
+  @Test
+  public void resolve_rule_names_and_count_unknown_ones() {
+    ActiveRuleKeys ruleKeys =
+        new ActiveRuleKeys(
+            new ActiveRulesBuilderWrapper()
+                .addRule("EmptyIfStatement")
+                .addRule("org.codenarc.rule.basic.EmptyClassRule")
+                .setInternalKey("EmptyClass")
+                .build());
+
+    assertThat(ruleKeys.ruleKey("EmptyIfStatement"))
+        .isEqualTo(RuleKey.of(CodeNarcRulesDefinition.REPOSITORY_KEY, "EmptyIfStatement"));
+    assertThat(ruleKeys.ruleKey("EmptyClass"))
+        .isEqualTo(
+            RuleKey.of(
+                CodeNarcRulesDefinition.REPOSITORY_KEY, "org.codenarc.rule.basic.EmptyClassRule"));
+    assertThat(ruleKeys.ruleKey("UnknownRule")).isNull();
+    assertThat(ruleKeys.ruleKey("UnknownRule")).isNull();
+    assertThat(ruleKeys.ruleKey("OtherRule")).isNull();
+
+    assertThat(ruleKeys.unknownRules())
+        .containsOnly(entry("OtherRule", 1), entry("UnknownRule", 2));
+    ruleKeys.logUnknownRules();
+  }
+
+  @Test
+  public void count_violations_without_rule_name() {
+    ActiveRuleKeys ruleKeys =
+        new ActiveRuleKeys(new ActiveRulesBuilderWrapper().addRule("EmptyIfStatement").build());
+
+    assertThat(ruleKeys.ruleKey(null)).isNull();
+    assertThat(ruleKeys.ruleKey("UnknownRule")).isNull();
+
+    assertThat(ruleKeys.unknownRules()).containsOnly(entry(null, 1), entry("UnknownRule", 1));
+    ruleKeys.logUnknownRules();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.sonar.api.batch.rule.ActiveRules;
+
+public class CodeNarcRuleSetCacheTest {
+
+  @Test
+  public void keep_rule_sets_of_the_last_profile() {
+    ActiveRules activeRules =
+        new ActiveRulesBuilderWrapper().addRule("org.codenarc.rule.basic.EmptyClassRule").build();
+    CodeNarcRuleSetCache cache = new CodeNarcRuleSetCache();
+
+    CodeNarcRuleSets ruleSets = cache.forProfile(activeRules, "first");
+    assertThat(cache.forProfile(activeRules, "first")).isSameAs(ruleSets);
+
+    CodeNarcRuleSets other = cache.forProfile(activeRules, "second");
+    assertThat(other).isNotSameAs(ruleSets);
+    assertThat(cache.forProfile(activeRules, "first")).isNotSameAs(ruleSets);
+  }
+
+  @Test
+  public void not_share_rule_sets_between_analyses() {
+    ActiveRules activeRules =
+        new ActiveRulesBuilderWrapper().addRule("org.codenarc.rule.basic.EmptyClassRule").build();
+
+    assertThat(new CodeNarcRuleSetCache().forProfile(activeRules, "first"))
+        .isNotSameAs(new CodeNarcRuleSetCache().forProfile(activeRules, "first"));
+  }
+}
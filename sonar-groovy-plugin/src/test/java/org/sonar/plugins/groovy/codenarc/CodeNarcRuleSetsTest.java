@@ -0,0 +1,75 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.codenarc.rule.basic.EmptyClassRule;
+import org.codenarc.rule.size.MethodSizeRule;
+import org.codenarc.ruleset.RuleSet;
+import org.junit.Test;
+import org.sonar.api.batch.rule.ActiveRules;
+
+public class CodeNarcRuleSetsTest {
+
+  @Test
+  public void build_rules_with_their_parameters() {
+    ActiveRules activeRules =
+        new ActiveRulesBuilderWrapper()
+            .addRule("org.codenarc.rule.size.MethodSizeRule")
+            .addParam("maxLines", "20")
+            .addRule("org.codenarc.rule.basic.EmptyClassRule.fixed")
+            .addParam("priority", " ")
+            .build();
+
+    RuleSet ruleSet = new CodeNarcRuleSets(activeRules, "profile").newRuleSet();
+
+    assertThat(ruleSet.getRules()).hasSize(2);
+    assertThat(ruleSet.getRules()).hasAtLeastOneElementOfType(EmptyClassRule.class);
+    MethodSizeRule methodSize =
+        (MethodSizeRule)
+            ruleSet.getRules().stream().filter(MethodSizeRule.class::isInstance).findFirst().get();
+    assertThat(methodSize.getMaxLines()).isEqualTo(20);
+  }
+
+  @Test
+  public void reuse_released_rule_sets() {
+    ActiveRules activeRules =
+        new ActiveRulesBuilderWrapper().addRule("org.codenarc.rule.basic.EmptyClassRule").build();
+    CodeNarcRuleSets ruleSets = new CodeNarcRuleSets(activeRules, "profile");
+
+    RuleSet first = ruleSets.acquire();
+    RuleSet second = ruleSets.acquire();
+    assertThat(second).isNotSameAs(first);
+
+    ruleSets.release(first);
+    assertThat(ruleSets.acquire()).isSameAs(first);
+  }
+
+  @Test
+  public void fail_on_unknown_rule_class() {
+    ActiveRules activeRules =
+        new ActiveRulesBuilderWrapper().addRule("org.codenarc.rule.UnknownRule").build();
+
+    assertThatThrownBy(() -> new CodeNarcRuleSets(activeRules, "profile"))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("org.codenarc.rule.UnknownRule");
+  }
+}
@@ -35,6 +35,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
@@ -42,7 +43,9 @@ import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.InMemoryCache;
 
 public class CodeNarcSensorTest {
   @Rule public TemporaryFolder temp = new TemporaryFolder();
@@ -61,7 +64,11 @@ public class CodeNarcSensorTest {
   @Test
   public void test_description() {
     CodeNarcSensor sensor =
-        new CodeNarcSensor(null, new GroovyFileSystem(sensorContextTester.fileSystem()));
+        new CodeNarcSensor(
+            null,
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache());
     DefaultSensorDescriptor defaultSensorDescriptor = new DefaultSensorDescriptor();
     sensor.describe(defaultSensorDescriptor);
     assertThat(defaultSensorDescriptor.languages()).containsOnly(Groovy.KEY);
@@ -101,7 +108,9 @@ public class CodeNarcSensorTest {
     CodeNarcSensor sensor =
         new CodeNarcSensor(
             sensorContextTester.activeRules(),
-            new GroovyFileSystem(sensorContextTester.fileSystem()));
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache());
     sensor.execute(sensorContextTester);
 
     assertThat(sensorContextTester.allIssues()).hasSize(17);
@@ -126,7 +135,9 @@ public class CodeNarcSensorTest {
     CodeNarcSensor sensor =
         new CodeNarcSensor(
             sensorContextTester.activeRules(),
-            new GroovyFileSystem(sensorContextTester.fileSystem()));
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache());
     sensor.execute(sensorContextTester);
 
     assertThat(sensorContextTester.allIssues()).isEmpty();
@@ -148,7 +159,9 @@ public class CodeNarcSensorTest {
     CodeNarcSensor sensor =
         new CodeNarcSensor(
             sensorContextTester.activeRules(),
-            new GroovyFileSystem(sensorContextTester.fileSystem()));
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache());
     sensor.execute(sensorContextTester);
 
     assertThat(sensorContextTester.allIssues()).isEmpty();
@@ -168,7 +181,9 @@ public class CodeNarcSensorTest {
     CodeNarcSensor sensor =
         new CodeNarcSensor(
             sensorContextTester.activeRules(),
-            new GroovyFileSystem(sensorContextTester.fileSystem()));
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache());
     sensor.execute(sensorContextTester);
 
     assertThat(sensorContextTester.allIssues()).hasSize(1);
@@ -188,7 +203,9 @@ public class CodeNarcSensorTest {
     CodeNarcSensor sensor =
         new CodeNarcSensor(
             sensorContextTester.activeRules(),
-            new GroovyFileSystem(sensorContextTester.fileSystem()));
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache());
     sensor.execute(sensorContextTester);
 
     assertThat(sensorContextTester.allIssues()).isEmpty();
@@ -209,12 +226,80 @@ public class CodeNarcSensorTest {
     CodeNarcSensor sensor =
         new CodeNarcSensor(
             sensorContextTester.activeRules(),
-            new GroovyFileSystem(sensorContextTester.fileSystem()));
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache());
     sensor.execute(sensorContextTester);
 
     assertThat(sensorContextTester.allIssues()).hasSize(2);
   }
 
+  @Test
+  public void should_run_code_narc_on_several_threads() throws IOException {
+    settings.setProperty(Groovy.ANALYSIS_THREADS_KEY, 3);
+
+    for (int i = 0; i < 7; i++) {
+      addFileWithContent(
+          "src/sample" + i + ".groovy", "package source\nclass SourceFile" + i + " {\n}");
+    }
+
+    ActiveRulesBuilderWrapper activeRulesBuilder =
+        new ActiveRulesBuilderWrapper()
+            .addRule("org.codenarc.rule.basic.EmptyClassRule")
+            .setInternalKey("EmptyClass");
+    sensorContextTester.setActiveRules(activeRulesBuilder.build());
+
+    CodeNarcSensor sensor =
+        new CodeNarcSensor(
+            sensorContextTester.activeRules(),
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache());
+    sensor.execute(sensorContextTester);
+
+    assertThat(sensorContextTester.allIssues()).hasSize(7);
+  }
+
+  @Test
+  public void should_replay_cached_violations_of_unchanged_files() throws IOException {
+    addFileWithContent("src/sample.groovy", "package source\nclass SourceFile1 {\n}");
+    addFileWithContent("src/other.groovy", "package source\nclass SourceFile2 {\n}");
+
+    ActiveRulesBuilderWrapper activeRulesBuilder =
+        new ActiveRulesBuilderWrapper()
+            .addRule("org.codenarc.rule.basic.EmptyClassRule")
+            .setInternalKey("EmptyClass");
+    sensorContextTester.setActiveRules(activeRulesBuilder.build());
+
+    InMemoryCache firstAnalysis = new InMemoryCache();
+    sensorContextTester.setCacheEnabled(true);
+    sensorContextTester.setPreviousCache(new InMemoryCache());
+    sensorContextTester.setNextCache(firstAnalysis);
+    new CodeNarcSensor(
+            sensorContextTester.activeRules(),
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            new GroovyAstCache(),
+            new CodeNarcRuleSetCache())
+        .execute(sensorContextTester);
+
+    InMemoryCache secondAnalysis = firstAnalysis.next();
+    sensorContextTester.setPreviousCache(firstAnalysis);
+    sensorContextTester.setNextCache(secondAnalysis);
+    GroovyAstCache astCache = Mockito.mock(GroovyAstCache.class);
+    new CodeNarcSensor(
+            sensorContextTester.activeRules(),
+            new GroovyFileSystem(sensorContextTester.fileSystem()),
+            astCache,
+            new CodeNarcRuleSetCache())
+        .execute(sensorContextTester);
+
+    // Both analyses report the violations, but only the first one parsed the files
+    assertThat(sensorContextTester.allIssues()).hasSize(4);
+    assertThat(secondAnalysis.keys()).hasSize(2).isEqualTo(firstAnalysis.keys());
+    Mockito.verify(astCache).finished(GroovyAstCache.CODENARC);
+    Mockito.verifyNoMoreInteractions(astCache);
+  }
+
   private Path getReportWithUpdatedSourceDir() throws IOException {
     Path reportUpdated = temp.newFile().toPath();
     String newSourceDir =
@@ -254,6 +339,7 @@ public class CodeNarcSensorTest {
             .setLanguage(Groovy.KEY)
             .setType(Type.MAIN)
             .setContents(content)
+            .setStatus(InputFile.Status.SAME)
             .build();
     sensorContextTester.fileSystem().add(inputFile);
   }
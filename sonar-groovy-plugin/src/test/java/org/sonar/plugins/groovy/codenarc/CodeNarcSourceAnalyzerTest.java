@@ -0,0 +1,128 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.codenarc.rule.basic.EmptyClassRule;
+import org.codenarc.ruleset.ListRuleSet;
+import org.codenarc.ruleset.RuleSet;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyAstCache;
+import org.sonar.plugins.groovy.utils.AnalysisProfiler;
+
+public class CodeNarcSourceAnalyzerTest {
+
+  @Test
+  public void parallel_analysis_should_keep_file_order() {
+    List<InputFile> files = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      files.add(
+          TestInputFileBuilder.create("", "src/File" + i + ".groovy")
+              .setLanguage(Groovy.KEY)
+              .setType(Type.MAIN)
+              .setContents("class File" + i + " {\n}")
+              .build());
+    }
+
+    CodeNarcSourceAnalyzer analyzer =
+        new CodeNarcSourceAnalyzer(files, 4, this::emptyClassRuleSet, new GroovyAstCache());
+    analyzer.analyze(emptyClassRuleSet());
+
+    assertThat(analyzer.getViolationsByFile().keySet()).containsExactlyElementsOf(files);
+    assertThat(analyzer.getViolationsByFile().values()).allSatisfy(v -> assertThat(v).hasSize(1));
+  }
+
+  @Test
+  public void unreadable_file_should_get_no_results_and_keep_rule_set() throws IOException {
+    InputFile unreadable = Mockito.mock(InputFile.class);
+    Mockito.when(unreadable.contents()).thenThrow(new IOException("unreadable"));
+    InputFile readable =
+        TestInputFileBuilder.create("", "src/File.groovy")
+            .setLanguage(Groovy.KEY)
+            .setType(Type.MAIN)
+            .setContents("class File {\n}")
+            .build();
+    AtomicInteger workerRuleSets = new AtomicInteger();
+
+    CodeNarcSourceAnalyzer analyzer =
+        new CodeNarcSourceAnalyzer(
+            Arrays.asList(unreadable, readable),
+            1,
+            () -> {
+              workerRuleSets.incrementAndGet();
+              return emptyClassRuleSet();
+            },
+            new GroovyAstCache());
+    analyzer.analyze(emptyClassRuleSet());
+
+    assertThat(analyzer.getViolationsByFile()).containsOnlyKeys(readable);
+    assertThat(analyzer.abandonedFiles()).isZero();
+    assertThat(workerRuleSets).hasValue(0);
+  }
+
+  @Test
+  public void time_budget_should_be_ignored_without_worker_rule_sets() {
+    List<InputFile> files = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      files.add(
+          TestInputFileBuilder.create("", "src/File" + i + ".groovy")
+              .setLanguage(Groovy.KEY)
+              .setType(Type.MAIN)
+              .setContents("class File" + i + " {\n}")
+              .build());
+    }
+    GroovyAstCache slowParser = Mockito.mock(GroovyAstCache.class);
+    Mockito.when(
+            slowParser.getAst(
+                ArgumentMatchers.any(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyInt(),
+                ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(100);
+              return null;
+            });
+
+    CodeNarcSourceAnalyzer analyzer =
+        new CodeNarcSourceAnalyzer(files, 1, null, slowParser, AnalysisProfiler.disabled(), 1);
+    analyzer.analyze(emptyClassRuleSet());
+
+    // No file is abandoned, as it would go on with the rule set of the next one
+    assertThat(analyzer.getViolationsByFile()).containsOnlyKeys(files);
+    assertThat(analyzer.abandonedFiles()).isZero();
+  }
+
+  private RuleSet emptyClassRuleSet() {
+    return new ListRuleSet(Collections.singletonList(new EmptyClassRule()));
+  }
+}
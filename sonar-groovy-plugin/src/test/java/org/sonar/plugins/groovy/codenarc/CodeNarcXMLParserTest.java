@@ -22,22 +22,35 @@ package org.sonar.plugins.groovy.codenarc;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.sonar.api.batch.fs.FilePredicate;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.plugins.groovy.codenarc.CodeNarcXMLParser.CodeNarcViolation;
+import org.sonar.plugins.groovy.foundation.Groovy;
 
 public class CodeNarcXMLParserTest {
 
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void should_parse_report() throws Exception {
-    FileSystem fileSystem = Mockito.mock(FileSystem.class);
-    Mockito.when(fileSystem.predicates()).thenReturn(Mockito.mock(FilePredicates.class));
-    Mockito.when(fileSystem.hasFiles(nullable(FilePredicate.class))).thenReturn(true);
+    DefaultFileSystem fileSystem = fileSystem();
+    InputFile sampleDomain = addFile(fileSystem, "org/codenarc/sample/domain/SampleDomain.groovy");
     List<CodeNarcViolation> violations =
         CodeNarcXMLParser.parse(
             FileUtils.toFile(getClass().getResource("parsing/sample.xml")), fileSystem);
@@ -48,6 +61,7 @@ public class CodeNarcXMLParserTest {
     assertThat(violation.getRuleName()).isEqualTo("EmptyElseBlock");
     assertThat(violation.getFilename())
         .isEqualTo("[sourcedir]/org/codenarc/sample/domain/SampleDomain.groovy");
+    assertThat(violation.getInputFile()).isSameAs(sampleDomain);
     assertThat(violation.getLine()).isEqualTo(24);
     assertThat(violation.getMessage()).isEqualTo("");
 
@@ -59,11 +73,26 @@ public class CodeNarcXMLParserTest {
     assertThat(violation.getMessage()).isEqualTo("");
   }
 
+  @Test
+  public void should_stream_violations_in_report_order() throws Exception {
+    DefaultFileSystem fileSystem = fileSystem();
+    File report = FileUtils.toFile(getClass().getResource("parsing/sample.xml"));
+    List<CodeNarcViolation> streamed = new ArrayList<>();
+
+    CodeNarcXMLParser.parse(report, fileSystem, streamed::add);
+
+    assertThat(streamed)
+        .extracting(CodeNarcViolation::getRuleName)
+        .containsExactlyElementsOf(
+            CodeNarcXMLParser.parse(report, fileSystem).stream()
+                .map(CodeNarcViolation::getRuleName)
+                .collect(Collectors.toList()))
+        .hasSize(17);
+  }
+
   @Test
   public void should_not_fail_if_line_number_not_specified() throws Exception {
-    FileSystem fileSystem = Mockito.mock(FileSystem.class);
-    Mockito.when(fileSystem.predicates()).thenReturn(Mockito.mock(FilePredicates.class));
-    Mockito.when(fileSystem.hasFiles(any(FilePredicate.class))).thenReturn(true);
+    DefaultFileSystem fileSystem = fileSystem();
     List<CodeNarcViolation> violations =
         CodeNarcXMLParser.parse(
             FileUtils.toFile(getClass().getResource("parsing/line-number-not-specified.xml")),
@@ -74,8 +103,48 @@ public class CodeNarcXMLParserTest {
     CodeNarcViolation violation = violations.get(0);
     assertThat(violation.getRuleName()).isEqualTo("CyclomaticComplexity");
     assertThat(violation.getFilename()).isEqualTo("org/example/Example.groovy");
+    assertThat(violation.getInputFile()).isNull();
     assertThat(violation.getLine()).isNull();
     assertThat(violation.getMessage())
         .isEqualTo("The cyclomatic complexity for class [org.example.Example] is [27.0]");
   }
+
+  @Test
+  public void should_resolve_each_file_once() throws Exception {
+    DefaultFileSystem indexed = fileSystem();
+    InputFile newService = addFile(indexed, "org/codenarc/sample/service/NewService.groovy");
+    FileSystem fileSystem = Mockito.mock(FileSystem.class);
+    Mockito.when(fileSystem.baseDir()).thenReturn(indexed.baseDir());
+    Mockito.when(fileSystem.predicates()).thenReturn(Mockito.mock(FilePredicates.class));
+    Mockito.when(fileSystem.inputFiles(nullable(FilePredicate.class)))
+        .thenReturn(Arrays.asList(newService));
+
+    List<CodeNarcViolation> violations =
+        CodeNarcXMLParser.parse(
+            FileUtils.toFile(getClass().getResource("parsing/sample.xml")), fileSystem);
+
+    assertThat(violations)
+        .filteredOn(violation -> violation.getInputFile() != null)
+        .isNotEmpty()
+        .allMatch(violation -> violation.getFilename().endsWith("/NewService.groovy"));
+    Mockito.verify(fileSystem, Mockito.times(1)).inputFiles(nullable(FilePredicate.class));
+    // Files of the report that are not indexed are looked up once each, not once per violation
+    Mockito.verify(fileSystem, Mockito.times(3)).inputFile(nullable(FilePredicate.class));
+  }
+
+  private DefaultFileSystem fileSystem() throws IOException {
+    return new DefaultFileSystem(temp.newFolder().toPath());
+  }
+
+  /** Adds a main file under the relative {@code [sourcedir]} source directory of the reports. */
+  private static InputFile addFile(DefaultFileSystem fileSystem, String path) {
+    InputFile inputFile =
+        TestInputFileBuilder.create("", "[sourcedir]/" + path)
+            .setModuleBaseDir(fileSystem.baseDirPath())
+            .setLanguage(Groovy.KEY)
+            .setType(Type.MAIN)
+            .build();
+    fileSystem.add(inputFile);
+    return inputFile;
+  }
 }
@@ -0,0 +1,121 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.foundation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+public class GroovyAstCacheTest {
+
+  private final GroovyAstCache cache = new GroovyAstCache();
+  private final InputFile inputFile =
+      TestInputFileBuilder.create("", "src/Foo.groovy").setLanguage(Groovy.KEY).build();
+  private final AtomicInteger parsed = new AtomicInteger();
+
+  @Test
+  public void parse_once_per_content() {
+    ModuleNode first = cache.getAst(inputFile, "class Foo {}", Phases.CONVERSION, this::parse);
+    ModuleNode second = cache.getAst(inputFile, "class Foo {}", Phases.CONVERSION, this::parse);
+
+    assertThat(second).isSameAs(first);
+    assertThat(parsed).hasValue(1);
+  }
+
+  @Test
+  public void release_ast_once_reused() {
+    cache.getAst(inputFile, "class Foo {}", Phases.CONVERSION, this::parse);
+    assertThat(cache.size()).isEqualTo(1);
+
+    cache.getAst(inputFile, "class Foo {}", Phases.CONVERSION, this::parse);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void release_every_ast_once_both_analyzers_finished() {
+    cache.getAst(inputFile, "class Foo {}", Phases.CONVERSION, this::parse);
+
+    cache.finished(GroovyAstCache.CODENARC);
+    assertThat(cache.size()).isEqualTo(1);
+    cache.finished(GroovyAstCache.GMETRICS);
+    assertThat(cache.size()).isZero();
+
+    // The next module starts over
+    cache.getAst(inputFile, "class Foo {}", Phases.CONVERSION, this::parse);
+    cache.finished(GroovyAstCache.GMETRICS);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void parse_again_when_content_has_same_hash_code() {
+    assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+    cache.getAst(inputFile, "Aa", Phases.CONVERSION, this::parse);
+    cache.getAst(inputFile, "BB", Phases.CONVERSION, this::parse);
+
+    assertThat(parsed).hasValue(2);
+  }
+
+  @Test
+  public void share_ast_of_source_with_configured_phase() {
+    CachedAstSourceString codeNarcSource =
+        new CachedAstSourceString("class Foo {}", inputFile, cache);
+    ModuleNode ast = codeNarcSource.getAst();
+
+    assertThat(codeNarcSource.getAst()).isSameAs(ast);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(
+            cache.getAst(
+                inputFile, "class Foo {}", codeNarcSource.getAstCompilerPhase(), this::parse))
+        .isSameAs(ast);
+    assertThat(parsed).hasValue(0);
+  }
+
+  @Test
+  public void parse_again_when_content_or_phase_changes() {
+    cache.getAst(inputFile, "class Foo {}", Phases.CONVERSION, this::parse);
+    cache.getAst(inputFile, "class Bar {}", Phases.CONVERSION, this::parse);
+    cache.getAst(inputFile, "class Bar {}", Phases.SEMANTIC_ANALYSIS, this::parse);
+
+    assertThat(parsed).hasValue(3);
+  }
+
+  @Test
+  public void remember_parse_failures() {
+    assertThat(cache.getAst(inputFile, "class {", Phases.CONVERSION, this::parseFailure)).isNull();
+    assertThat(cache.getAst(inputFile, "class {", Phases.CONVERSION, this::parseFailure)).isNull();
+
+    assertThat(parsed).hasValue(1);
+  }
+
+  private ModuleNode parse() {
+    parsed.incrementAndGet();
+    return new ModuleNode((SourceUnit) null);
+  }
+
+  private ModuleNode parseFailure() {
+    parsed.incrementAndGet();
+    return null;
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.plugins.groovy.foundation;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.nio.file.Paths;
 import org.junit.Before;
@@ -71,4 +72,30 @@ public class GroovyFileSystemTest {
             .build());
     assertThat(groovyFileSystem.sourceInputFileFromRelativePath("foo/fake3.file")).isNotNull();
   }
+
+  @Test
+  public void sourcePathIndex() {
+    addGroovyFile("src/main/groovy/org/sample/Foo.groovy", Type.MAIN);
+    addGroovyFile("src/test/groovy/org/sample/FooTest.groovy", Type.TEST);
+    addGroovyFile("a/org/sample/Bar.groovy", Type.MAIN);
+    addGroovyFile("b/org/sample/Bar.groovy", Type.MAIN);
+
+    SourcePathIndex index = groovyFileSystem.sourcePathIndex();
+
+    assertThat(index.inputFile(null)).isNull();
+    assertThat(index.inputFile("org/sample/Foo.groovy"))
+        .isSameAs(groovyFileSystem.sourceInputFileFromRelativePath("org/sample/Foo.groovy"));
+    assertThat(index.inputFile("Foo.groovy")).isNotNull();
+    assertThat(index.inputFile("src/main/groovy/org/sample/Foo.groovy")).isNotNull();
+    assertThat(index.inputFile("ample/Foo.groovy")).isNull();
+    assertThat(index.inputFile("org/sample/FooTest.groovy")).isNull();
+    assertThat(index.inputFile("a/org/sample/Bar.groovy")).isNotNull();
+    assertThatThrownBy(() -> index.inputFile("org/sample/Bar.groovy"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private void addGroovyFile(String path, Type type) {
+    fileSystem.add(
+        TestInputFileBuilder.create("", path).setType(type).setLanguage(Groovy.KEY).build());
+  }
 }
@@ -20,10 +20,19 @@
 package org.sonar.plugins.groovy.foundation;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.extractProperty;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
@@ -31,9 +40,12 @@ import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.plugins.groovy.TestUtils;
+import org.sonar.plugins.groovy.utils.AnalysisCache;
 
 public class GroovyHighlighterAndTokenizerTest {
 
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void should_highlight_keywords() throws Exception {
     File file = TestUtils.getResource("/org/sonar/plugins/groovy/foundation/Greet.groovy");
@@ -43,6 +55,7 @@ public class GroovyHighlighterAndTokenizerTest {
         TestInputFileBuilder.create("", file.getParentFile(), file)
             .setLanguage(Groovy.KEY)
             .setType(Type.MAIN)
+            .setCharset(StandardCharsets.UTF_8)
             .setContents(new String(Files.readAllBytes(file.toPath()), "UTF-8"))
             .build();
     context.fileSystem().add(inputFile);
@@ -83,6 +96,7 @@ public class GroovyHighlighterAndTokenizerTest {
         TestInputFileBuilder.create("", file.getParentFile(), file)
             .setLanguage(Groovy.KEY)
             .setType(Type.MAIN)
+            .setCharset(StandardCharsets.UTF_8)
             .initMetadata(new String(Files.readAllBytes(file.toPath()), "UTF-8"))
             .build();
     context.fileSystem().add(inputFile);
@@ -107,6 +121,108 @@ public class GroovyHighlighterAndTokenizerTest {
     Mockito.verify(context, Mockito.times(1)).newCpdTokens();
   }
 
+  @Test
+  public void should_replay_tokens_recorded_while_streaming() throws Exception {
+    File file = TestUtils.getResource("/org/sonar/plugins/groovy/foundation/Greet.groovy");
+    InputFile inputFile =
+        TestInputFileBuilder.create("", file.getParentFile(), file)
+            .setLanguage(Groovy.KEY)
+            .setType(Type.MAIN)
+            .setCharset(StandardCharsets.UTF_8)
+            .initMetadata(new String(Files.readAllBytes(file.toPath()), "UTF-8"))
+            .build();
+
+    SensorContextTester streamed = SensorContextTester.create(file.getParentFile());
+    streamed.fileSystem().add(inputFile);
+    streamed.fileSystem().setWorkDir(temp.newFolder().toPath());
+    streamed.setCacheEnabled(true);
+    GroovyHighlighterAndTokenizer highlighter = new GroovyHighlighterAndTokenizer(inputFile);
+    highlighter.stream(streamed, this, new AnalysisCache(streamed, "test", ""));
+    highlighter.lex();
+    highlighter.save(streamed);
+    ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+    highlighter.writeTokens(new DataOutputStream(recorded));
+    highlighter.discardRecordedTokens();
+
+    SensorContextTester replayed = SensorContextTester.create(file.getParentFile());
+    replayed.fileSystem().add(inputFile);
+    GroovyHighlighterAndTokenizer replay = new GroovyHighlighterAndTokenizer(inputFile);
+    replay.readTokens(new DataInputStream(new ByteArrayInputStream(recorded.toByteArray())));
+    replay.save(replayed);
+
+    List<Object> streamedValues =
+        extractProperty("value").from(streamed.cpdTokens(":Greet.groovy"));
+    assertThat(streamedValues).hasSize(10);
+    assertThat(replayed.cpdTokens(":Greet.groovy"))
+        .extracting("value")
+        .containsExactlyElementsOf(streamedValues);
+    assertThat(replayed.highlightingTypeAt(":Greet.groovy", 10, 0))
+        .containsOnly(TypeOfText.ANNOTATION);
+    assertThat(replayed.highlightingTypeAt(":Greet.groovy", 12, 17))
+        .containsOnly(TypeOfText.COMMENT);
+  }
+
+  @Test
+  public void should_stream_tokens_replayed_from_cache() throws Exception {
+    File file = TestUtils.getResource("/org/sonar/plugins/groovy/foundation/Greet.groovy");
+    InputFile inputFile =
+        TestInputFileBuilder.create("", file.getParentFile(), file)
+            .setLanguage(Groovy.KEY)
+            .setType(Type.MAIN)
+            .setCharset(StandardCharsets.UTF_8)
+            .initMetadata(new String(Files.readAllBytes(file.toPath()), "UTF-8"))
+            .build();
+
+    SensorContextTester lexed = SensorContextTester.create(file.getParentFile());
+    lexed.fileSystem().add(inputFile);
+    GroovyHighlighterAndTokenizer highlighter = new GroovyHighlighterAndTokenizer(inputFile);
+    highlighter.lex();
+    ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+    highlighter.writeTokens(new DataOutputStream(recorded));
+    highlighter.save(lexed);
+
+    SensorContextTester replayed = SensorContextTester.create(file.getParentFile());
+    replayed.fileSystem().add(inputFile);
+    GroovyHighlighterAndTokenizer replay = new GroovyHighlighterAndTokenizer(inputFile);
+    replay.stream(replayed, this, null);
+    replay.readTokens(new DataInputStream(new ByteArrayInputStream(recorded.toByteArray())));
+    replay.save(replayed);
+    ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+    replay.writeTokens(new DataOutputStream(buffered));
+    assertThat(buffered.size()).as("no token is buffered").isEqualTo(4);
+
+    List<Object> lexedValues = extractProperty("value").from(lexed.cpdTokens(":Greet.groovy"));
+    assertThat(lexedValues).hasSize(10);
+    assertThat(replayed.cpdTokens(":Greet.groovy"))
+        .extracting("value")
+        .containsExactlyElementsOf(lexedValues);
+    assertThat(replayed.highlightingTypeAt(":Greet.groovy", 10, 0))
+        .containsOnly(TypeOfText.ANNOTATION);
+    assertThat(replayed.highlightingTypeAt(":Greet.groovy", 12, 17))
+        .containsOnly(TypeOfText.COMMENT);
+  }
+
+  @Test
+  public void should_skip_byte_order_mark_of_test_files() throws Exception {
+    File baseDir = temp.newFolder();
+    File file = new File(baseDir, "FooTest.groovy");
+    Files.write(file.toPath(), "\uFEFFclass FooTest {}".getBytes(StandardCharsets.UTF_8));
+    InputFile inputFile =
+        TestInputFileBuilder.create("", baseDir, file)
+            .setLanguage(Groovy.KEY)
+            .setType(Type.TEST)
+            .setCharset(StandardCharsets.UTF_8)
+            .build();
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.fileSystem().add(inputFile);
+
+    new GroovyHighlighterAndTokenizer(inputFile).processFile(context);
+
+    // Same offsets as for main files, which are lexed through the same stream
+    assertThat(context.highlightingTypeAt(":FooTest.groovy", 1, 0))
+        .containsOnly(TypeOfText.KEYWORD);
+  }
+
   @Test
   public void should_highlight_nothing_if_file_is_missing() throws Exception {
     File file = TestUtils.getResource("/org/sonar/plugins/groovy/foundation/Greet.groovy");
@@ -116,6 +232,7 @@ public class GroovyHighlighterAndTokenizerTest {
         TestInputFileBuilder.create("", "Greet-fake.groovy")
             .setLanguage(Groovy.KEY)
             .setType(Type.MAIN)
+            .setCharset(StandardCharsets.UTF_8)
             .build();
     context.fileSystem().add(inputFile);
 
@@ -136,6 +253,7 @@ public class GroovyHighlighterAndTokenizerTest {
         TestInputFileBuilder.create("", file.getParentFile(), file)
             .setLanguage(Groovy.KEY)
             .setType(Type.MAIN)
+            .setCharset(StandardCharsets.UTF_8)
             .initMetadata(new String(Files.readAllBytes(file.toPath()), "UTF-8"))
             .build();
     context.fileSystem().add(inputFile);
@@ -39,4 +39,17 @@ public class GroovyTest {
     settings.setProperty(Groovy.FILE_SUFFIXES_KEY, ".groovy, .grvy");
     assertThat(language.getFileSuffixes()).containsOnly(".groovy", ".grvy");
   }
+
+  @Test
+  public void analysis_threads() {
+    MapSettings settings = new MapSettings();
+    assertThat(Groovy.analysisThreads(settings.asConfig())).isEqualTo(1);
+
+    settings.setProperty(Groovy.ANALYSIS_THREADS_KEY, 4);
+    assertThat(Groovy.analysisThreads(settings.asConfig())).isEqualTo(4);
+
+    settings.setProperty(Groovy.ANALYSIS_THREADS_KEY, 0);
+    assertThat(Groovy.analysisThreads(settings.asConfig()))
+        .isEqualTo(Runtime.getRuntime().availableProcessors());
+  }
 }
@@ -0,0 +1,57 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.foundation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import groovyjarjarantlr.Token;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.codehaus.groovy.antlr.parser.GroovyTokenTypes;
+import org.junit.Test;
+
+public class GroovyTokenPipelineTest {
+
+  @Test
+  public void should_feed_every_visitor_with_the_same_tokens() throws Exception {
+    List<String> first = new ArrayList<>();
+    List<String> second = new ArrayList<>();
+
+    GroovyTokenPipeline.lex(
+        new StringReader("class A {\n  // comment\n}\n"),
+        (token, nextTokenLine) -> first.add(token.getText()),
+        (token, nextTokenLine) -> second.add(token.getText()));
+
+    assertThat(first).isNotEmpty().isEqualTo(second);
+    assertThat(first).contains("class", "A", "{", "// comment", "}");
+  }
+
+  @Test
+  public void should_visit_comments_and_whitespaces() throws Exception {
+    List<Integer> types = new ArrayList<>();
+
+    GroovyTokenPipeline.lex(
+        new StringReader("/* a */ def b"), (token, nextTokenLine) -> types.add(token.getType()));
+
+    assertThat(types)
+        .contains(GroovyTokenTypes.ML_COMMENT, GroovyTokenTypes.WS)
+        .doesNotContain(Token.EOF_TYPE);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.jacoco;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.plugins.groovy.TestUtils;
+
+public class ClassFileIndexTest {
+
+  @Rule public TemporaryFolder tmpDir = new TemporaryFolder();
+
+  @Test
+  public void should_index_class_files_of_directories_and_archives() throws Exception {
+    byte[] hello = Files.readAllBytes(TestUtils.getResource(getClass(), "../Hello.class.toCopy"));
+    Path classes = tmpDir.newFolder("classes").toPath();
+    Files.createDirectories(classes.resolve("example"));
+    Files.write(classes.resolve("example/Hello.class"), hello);
+    Files.write(classes.resolve("example/readme.txt"), new byte[0]);
+    File jar = tmpDir.newFile("lib.jar");
+    try (OutputStream out = Files.newOutputStream(jar.toPath());
+        ZipOutputStream zip = new ZipOutputStream(out)) {
+      zip.putNextEntry(new ZipEntry("example/Hello$InnerClass.class"));
+      zip.write(hello);
+      zip.closeEntry();
+      zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+      zip.closeEntry();
+    }
+
+    try (ClassFileIndex index =
+        ClassFileIndex.build(
+            Arrays.asList(classes.toFile(), jar, new File(tmpDir.getRoot(), "missing")), 2)) {
+      assertThat(index.size()).isEqualTo(2);
+      assertThat(index.classFiles())
+          .extracting(path -> path.getFileName().toString())
+          .containsOnly("Hello.class", "Hello$InnerClass.class");
+      for (Path classFile : index.classFiles()) {
+        assertThat(Files.readAllBytes(classFile)).isEqualTo(hello);
+      }
+    }
+  }
+
+  @Test
+  public void should_skip_versioned_classes_and_module_descriptor_of_multi_release_jars()
+      throws Exception {
+    byte[] hello = Files.readAllBytes(TestUtils.getResource(getClass(), "../Hello.class.toCopy"));
+    File jar = tmpDir.newFile("multi-release.jar");
+    try (OutputStream out = Files.newOutputStream(jar.toPath());
+        ZipOutputStream zip = new ZipOutputStream(out)) {
+      for (String entry :
+          Arrays.asList(
+              "example/Hello.class",
+              "module-info.class",
+              "META-INF/versions/11/example/Hello.class",
+              "META-INF/versions/11/module-info.class")) {
+        zip.putNextEntry(new ZipEntry(entry));
+        zip.write(hello);
+        zip.closeEntry();
+      }
+    }
+
+    try (ClassFileIndex index = ClassFileIndex.build(Collections.singletonList(jar), 1)) {
+      assertThat(index.classFiles())
+          .extracting(Path::toString)
+          .containsExactly("/example/Hello.class");
+    }
+  }
+
+  @Test
+  public void should_follow_symbolic_links_to_directories() throws Exception {
+    Path target = tmpDir.newFolder("target").toPath();
+    Files.write(target.resolve("Hello.class"), new byte[] {1});
+    Path classes = tmpDir.newFolder("classes").toPath();
+    try {
+      Files.createSymbolicLink(classes.resolve("example"), target);
+      Files.createSymbolicLink(target.resolve("loop"), classes);
+    } catch (UnsupportedOperationException | IOException e) {
+      Assume.assumeNoException(e);
+    }
+
+    try (ClassFileIndex index =
+        ClassFileIndex.build(Collections.singletonList(classes.toFile()), 1)) {
+      assertThat(index.classFiles()).containsExactly(classes.resolve("example/Hello.class"));
+    }
+  }
+
+  @Test
+  public void should_keep_class_of_last_location_when_duplicated() throws Exception {
+    Path first = tmpDir.newFolder("first").toPath();
+    Path second = tmpDir.newFolder("second").toPath();
+    Files.write(first.resolve("Hello.class"), new byte[] {1});
+    Files.write(second.resolve("Hello.class"), new byte[] {2});
+
+    try (ClassFileIndex index =
+        ClassFileIndex.build(Arrays.asList(first.toFile(), second.toFile()), 1)) {
+      assertThat(index.classFiles()).containsExactly(second.resolve("Hello.class"));
+    }
+  }
+
+  @Test
+  public void should_ignore_unreadable_archive() throws Exception {
+    File jar = tmpDir.newFile("broken.jar");
+    Files.write(jar.toPath(), new byte[] {1, 2, 3});
+
+    try (ClassFileIndex index = ClassFileIndex.build(Collections.singletonList(jar), 1)) {
+      assertThat(index.size()).isZero();
+    }
+  }
+}
@@ -46,4 +46,22 @@ public class ExecutionDataVisitorTest {
     assertThat(visitor.getSessions().get("bar").get(1).getProbes()).isEqualTo(new boolean[] {false, true, false});
     assertThat(visitor.getMerged().get(1).getProbes()).isEqualTo(new boolean[] {true, true, true});
   }
+
+  @Test
+  public void merged_only_should_merge_probes_without_keeping_sessions() {
+    ExecutionDataVisitor visitor = ExecutionDataVisitor.mergedOnly();
+    ExecutionData first = new ExecutionData(1, "", new boolean[] {true, false, false});
+
+    visitor.visitSessionInfo(new SessionInfo("foo", 1L, 1L));
+    visitor.visitClassExecution(first);
+    visitor.visitSessionInfo(new SessionInfo("bar", 2L, 2L));
+    visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {false, true, false}));
+    visitor.visitClassExecution(new ExecutionData(2, "", new boolean[] {false, true}));
+
+    assertThat(visitor.getSessions()).isEmpty();
+    assertThat(visitor.getMerged().getContents()).hasSize(2);
+    assertThat(visitor.getMerged().get(1)).isSameAs(first);
+    assertThat(first.getProbes()).isEqualTo(new boolean[] {true, true, false});
+    assertThat(visitor.getMerged().get(2).getProbes()).isEqualTo(new boolean[] {false, true});
+  }
 }
@@ -64,19 +64,25 @@ public class JaCoCoConfigurationTest {
 
   @Test
   public void defaults() {
-    assertThat(jacocoSettings.getReportPath()).isEqualTo("target/jacoco.exec");
-    assertThat(jacocoSettings.getItReportPath()).isEqualTo("target/jacoco-it.exec");
+    assertThat(jacocoSettings.getReportPaths()).containsExactly("target/jacoco.exec");
+    assertThat(jacocoSettings.getItReportPaths()).containsExactly("target/jacoco-it.exec");
   }
 
   @Test
   public void shouldReturnItReportPathWhenModified() {
     settings.setProperty(JaCoCoConfiguration.IT_REPORT_PATH_PROPERTY, "target/it-jacoco-test.exec");
-    assertThat(jacocoSettings.getItReportPath()).isEqualTo("target/it-jacoco-test.exec");
+    assertThat(jacocoSettings.getItReportPaths()).containsExactly("target/it-jacoco-test.exec");
   }
 
   @Test
   public void shouldReturnReportPathWhenModified() {
     settings.setProperty(JaCoCoConfiguration.REPORT_PATH_PROPERTY, "jacoco.exec");
-    assertThat(jacocoSettings.getReportPath()).isEqualTo("jacoco.exec");
+    assertThat(jacocoSettings.getReportPaths()).containsExactly("jacoco.exec");
+  }
+
+  @Test
+  public void shouldReturnAllReportPaths() {
+    settings.setProperty(JaCoCoConfiguration.REPORT_PATH_PROPERTY, "jacoco.exec, shards/*.exec");
+    assertThat(jacocoSettings.getReportPaths()).containsExactly("jacoco.exec", "shards/*.exec");
   }
 }
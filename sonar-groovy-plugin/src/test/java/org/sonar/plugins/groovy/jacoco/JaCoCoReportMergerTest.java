@@ -19,7 +19,19 @@
  */
 package org.sonar.plugins.groovy.jacoco;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -51,14 +63,60 @@ public class JaCoCoReportMergerTest {
     merge("jacoco-0.7.5.exec", "jacoco-it-0.7.5.exec");
   }
 
-  private void merge(String file1, String file2) {
-    File current =
-        TestUtils.getResource(
-            "/org/sonar/plugins/groovy/jacoco/JaCoCo_incompatible_merge/" + file1);
-    File previous =
-        TestUtils.getResource(
-            "/org/sonar/plugins/groovy/jacoco/JaCoCo_incompatible_merge/" + file2);
-    JaCoCoReportMerger.mergeReports(
-        testFolder.getRoot().toPath().resolve("dummy"), current, previous);
+  @Test
+  public void merge_in_memory_should_match_reports_read_in_sequence() {
+    File current = resource("jacoco-0.7.5.exec");
+    File previous = resource("jacoco-it-0.7.5.exec");
+    ExecutionDataVisitor read = new ExecutionDataVisitor();
+    new JaCoCoReportReader(current).readJacocoReport(read, read);
+    new JaCoCoReportReader(previous).readJacocoReport(read, read);
+
+    ExecutionDataStore merged = JaCoCoReportMerger.mergeReports(current, previous);
+
+    assertThat(merged.getContents()).hasSameSizeAs(read.getMerged().getContents()).isNotEmpty();
+    for (ExecutionData data : read.getMerged().getContents()) {
+      assertThat(merged.get(data.getId()).getProbes()).containsExactly(data.getProbes());
+    }
+  }
+
+  @Test
+  public void parallel_merge_should_combine_probes_of_every_shard() throws IOException {
+    List<File> shards = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      boolean[] probes = new boolean[5];
+      probes[i] = true;
+      shards.add(shard("shard" + i + ".exec", new ExecutionData(1, "Foo", probes)));
+    }
+    shards.add(shard("other.exec", new ExecutionData(2, "Bar", new boolean[] {true})));
+
+    ExecutionDataStore merged = JaCoCoReportMerger.mergeReports(shards, 3);
+
+    assertThat(merged.getContents()).hasSize(2);
+    assertThat(merged.get(1).getProbes()).containsExactly(true, true, true, true, true);
+    assertThat(merged.get(2).getProbes()).containsExactly(true);
+  }
+
+  @Test
+  public void parallel_merge_of_no_report_should_be_empty() {
+    assertThat(JaCoCoReportMerger.mergeReports(new ArrayList<>(), 4).getContents()).isEmpty();
+  }
+
+  private File shard(String name, ExecutionData data) throws IOException {
+    Path shard = testFolder.getRoot().toPath().resolve(name);
+    try (OutputStream output = Files.newOutputStream(shard)) {
+      ExecutionDataWriter writer = new ExecutionDataWriter(output);
+      writer.visitSessionInfo(new SessionInfo(name, 1L, 2L));
+      writer.visitClassExecution(data);
+    }
+    return shard.toFile();
+  }
+
+  private static File resource(String name) {
+    return TestUtils.getResource(
+        "/org/sonar/plugins/groovy/jacoco/JaCoCo_incompatible_merge/" + name);
+  }
+
+  private static void merge(String file1, String file2) {
+    JaCoCoReportMerger.mergeReports(resource(file1), resource(file2));
   }
 }
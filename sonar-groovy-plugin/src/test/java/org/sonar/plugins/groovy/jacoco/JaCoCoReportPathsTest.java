@@ -0,0 +1,80 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.jacoco;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.scan.filesystem.PathResolver;
+
+public class JaCoCoReportPathsTest {
+
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private final PathResolver pathResolver = new PathResolver();
+  private File baseDir;
+
+  @Before
+  public void setUp() throws IOException {
+    baseDir = testFolder.getRoot().getCanonicalFile();
+    testFolder.newFile("jacoco.exec");
+    testFolder.newFolder("shards", "b");
+    testFolder.newFile("shards/b.exec");
+    testFolder.newFile("shards/a.exec");
+    testFolder.newFile("shards/b/c.exec");
+    testFolder.newFile("shards/readme.txt");
+  }
+
+  @Test
+  public void should_resolve_plain_paths_to_existing_files() {
+    assertThat(JaCoCoReportPaths.resolve(pathResolver, baseDir, "jacoco.exec", " missing.exec"))
+        .containsExactly(new File(baseDir, "jacoco.exec"));
+  }
+
+  @Test
+  public void should_resolve_glob_patterns_in_name_order() {
+    assertThat(JaCoCoReportPaths.resolve(pathResolver, baseDir, "shards/*.exec"))
+        .containsExactly(new File(baseDir, "shards/a.exec"), new File(baseDir, "shards/b.exec"));
+    assertThat(JaCoCoReportPaths.resolve(pathResolver, baseDir, "shards/**.exec"))
+        .containsExactly(
+            new File(baseDir, "shards/a.exec"),
+            new File(baseDir, "shards/b.exec"),
+            new File(baseDir, "shards/b/c.exec"));
+  }
+
+  @Test
+  public void should_resolve_absolute_glob_patterns() {
+    String pattern = new File(baseDir, "shards").getAbsolutePath().replace('\\', '/') + "/?.exec";
+    assertThat(JaCoCoReportPaths.resolve(pathResolver, baseDir, pattern))
+        .containsExactly(new File(baseDir, "shards/a.exec"), new File(baseDir, "shards/b.exec"));
+  }
+
+  @Test
+  public void should_list_each_report_once() {
+    assertThat(
+            JaCoCoReportPaths.resolve(
+                pathResolver, baseDir, "shards/a.exec", "shards/*.exec", "unknown/*.exec"))
+        .containsExactly(new File(baseDir, "shards/a.exec"), new File(baseDir, "shards/b.exec"));
+  }
+}
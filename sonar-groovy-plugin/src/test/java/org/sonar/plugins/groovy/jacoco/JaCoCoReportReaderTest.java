@@ -22,8 +22,10 @@ package org.sonar.plugins.groovy.jacoco;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.assertj.core.api.Fail;
+import org.jacoco.core.analysis.ISourceFileCoverage;
 import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
 import org.junit.Rule;
@@ -32,6 +34,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.plugins.groovy.TestUtils;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
 public class JaCoCoReportReaderTest {
@@ -47,7 +50,7 @@ public class JaCoCoReportReaderTest {
   @Test
   public void reading_unexisting_file_should_fail() {
     expectedException.expect(IllegalArgumentException.class);
-    new JaCoCoReportReader(dummy);
+    read(dummy);
   }
 
   @Test
@@ -62,6 +65,30 @@ public class JaCoCoReportReaderTest {
     new JaCoCoReportReader(report).analyzeFiles(null, classFile);
   }
 
+  @Test
+  public void sharded_analysis_should_merge_coverage_of_each_source_file() throws Exception {
+    File report = TestUtils.getResource("/org/sonar/plugins/groovy/jacoco/JaCoCoSensor_0_7_5/jacoco-ut.exec");
+    File hello = testFolder.newFile("Hello.class");
+    File inner = testFolder.newFile("Hello$InnerClass.class");
+    FileUtils.copyFile(TestUtils.getResource("/org/sonar/plugins/groovy/jacoco/Hello.class.toCopy"), hello);
+    FileUtils.copyFile(TestUtils.getResource("/org/sonar/plugins/groovy/jacoco/Hello$InnerClass.class.toCopy"), inner);
+    ExecutionDataVisitor edv = new ExecutionDataVisitor();
+    JaCoCoReportReader reader = new JaCoCoReportReader(report).readJacocoReport(edv, edv);
+    List<File> classFiles = Arrays.asList(hello, inner);
+
+    ISourceFileCoverage sequential = reader.analyzeFiles(edv.getMerged(), classFiles).getSourceFiles().iterator().next();
+    Collection<ISourceFileCoverage> sharded = reader.analyzeFiles(edv.getMerged(), Arrays.asList(hello.toPath(), inner.toPath()), 2, classBytes -> true).getSourceFiles();
+
+    assertThat(sharded).hasSize(1);
+    ISourceFileCoverage merged = sharded.iterator().next();
+    assertThat(merged.getName()).isEqualTo(sequential.getName());
+    assertThat(merged.getLineCounter()).isEqualTo(sequential.getLineCounter());
+    assertThat(merged.getBranchCounter()).isEqualTo(sequential.getBranchCounter());
+    for (int line = sequential.getFirstLine(); line <= sequential.getLastLine(); line++) {
+      assertThat(merged.getLine(line).getStatus()).isEqualTo(sequential.getLine(line).getStatus());
+    }
+  }
+
   @Test
   public void analyzing_a_deleted_file_should_fail() throws Exception {
     File report = testFolder.newFile("jacoco.exec");
@@ -79,13 +106,50 @@ public class JaCoCoReportReaderTest {
   public void incorrect_binary_format_should_fail() throws Exception {
     File report = TestUtils.getResource("/org/sonar/plugins/groovy/jacoco/Hello.class.toCopy");
     expectedException.expect(IllegalArgumentException.class);
-    new JaCoCoReportReader(report);
+    read(report);
+  }
+
+  @Test
+  public void empty_exec_file_should_fail() throws Exception {
+    File report = testFolder.newFile("empty.exec");
+    expectedException.expect(IllegalArgumentException.class);
+    read(report);
+  }
+
+  @Test
+  public void mapped_report_should_be_read_as_many_times_as_requested() {
+    File report = TestUtils.getResource("/org/sonar/plugins/groovy/jacoco/JaCoCoSensor_0_7_5/jacoco-ut.exec");
+    JaCoCoReportReader reader = new JaCoCoReportReader(report);
+    ExecutionDataVisitor first = ExecutionDataVisitor.mergedOnly();
+    ExecutionDataVisitor second = ExecutionDataVisitor.mergedOnly();
+
+    reader.readJacocoReport(first, first).readJacocoReport(second, second);
+
+    assertThat(first.getMerged().getContents()).isNotEmpty();
+    assertThat(second.getMerged().getContents()).hasSameSizeAs(first.getMerged().getContents());
   }
 
   @Test
   public void unknown_exec_file_should_fail() {
     expectedException.expect(IllegalArgumentException.class);
-    new JaCoCoReportReader(new File("unknown.exec"));
+    read(new File("unknown.exec"));
+  }
+
+  @Test
+  public void report_should_only_be_opened_when_read() throws Exception {
+    File report = testFolder.newFile("jacoco.exec");
+    JaCoCoReportReader reader = new JaCoCoReportReader(report);
+    FileUtils.copyFile(TestUtils.getResource("/org/sonar/plugins/groovy/jacoco/JaCoCoSensor_0_7_5/jacoco-ut.exec"), report);
+
+    ExecutionDataVisitor edv = ExecutionDataVisitor.mergedOnly();
+    reader.readJacocoReport(edv, edv);
+
+    assertThat(edv.getMerged().getContents()).isNotEmpty();
+  }
+
+  private static void read(File report) {
+    ExecutionDataVisitor edv = new ExecutionDataVisitor();
+    new JaCoCoReportReader(report).readJacocoReport(edv, edv);
   }
 
 }
@@ -25,6 +25,7 @@ import static org.mockito.Mockito.mock;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -47,6 +48,7 @@ public class JaCoCoSensorTest {
 
   private MapSettings settings = TestUtils.jacocoDefaultSettings();
   private JaCoCoSensor sensor;
+  private DefaultFileSystem fileSystem;
 
   private void initWithJaCoCoVersion(String jacocoVersion) throws IOException {
     Path outputDir = tmpDir.newFolder().toPath();
@@ -64,7 +66,7 @@ public class JaCoCoSensorTest {
     settings.setProperty(JaCoCoConfiguration.SONAR_GROOVY_BINARIES, ".");
     settings.setProperty(JaCoCoConfiguration.REPORT_PATH_PROPERTY, "jacoco-ut.exec");
 
-    DefaultFileSystem fileSystem = new DefaultFileSystem(outputDir);
+    fileSystem = new DefaultFileSystem(outputDir);
     InputFile inputFile =
         TestInputFileBuilder.create("", "example/Hello.groovy")
             .setLanguage(Groovy.KEY)
@@ -123,6 +125,23 @@ public class JaCoCoSensorTest {
     verifyMeasures(context);
   }
 
+  @Test
+  public void testClassesWithoutExecutionDataHaveZeroHitLines() throws IOException {
+    initWithJaCoCoVersion("JaCoCoSensor_0_7_5");
+
+    Path workDir = tmpDir.newFolder().toPath();
+    SensorContextTester context = SensorContextTester.create(workDir);
+    context.setSettings(settings);
+
+    new JaCoCoAnalyzer(new GroovyFileSystem(fileSystem), settings.asConfig())
+        .analyse(context, new ExecutionDataStore());
+
+    for (int line : new int[] {9, 10, 14, 25, 30, 38, 47}) {
+      assertThat(context.lineHits(":example/Hello.groovy", line)).isZero();
+    }
+    assertThat(context.coveredConditions(":example/Hello.groovy", 14)).isZero();
+  }
+
   private void verifyMeasures(SensorContextTester context) {
     int[] oneHitlines = {9, 10, 14, 15, 17, 21, 29, 32, 33, 42, 47};
     int[] zeroHitlines = {25, 30, 38};
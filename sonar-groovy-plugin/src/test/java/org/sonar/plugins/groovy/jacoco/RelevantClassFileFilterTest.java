@@ -0,0 +1,84 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.jacoco;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.plugins.groovy.TestUtils;
+import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+
+public class RelevantClassFileFilterTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private byte[] hello;
+  private DefaultFileSystem fileSystem;
+
+  @Before
+  public void setUp() throws Exception {
+    hello = Files.readAllBytes(TestUtils.getResource(getClass(), "../Hello.class.toCopy"));
+    fileSystem = new DefaultFileSystem(temp.newFolder().toPath());
+  }
+
+  @Test
+  public void should_read_source_path_from_class_file() {
+    assertThat(RelevantClassFileFilter.sourcePath(hello)).isEqualTo("example/Hello.groovy");
+  }
+
+  @Test
+  public void should_keep_class_with_indexed_source() {
+    addSource("src/main/groovy/example/Hello.groovy");
+    RelevantClassFileFilter filter = filter();
+
+    assertThat(filter.test(hello)).isTrue();
+    assertThat(filter.skipped()).isZero();
+  }
+
+  @Test
+  public void should_skip_class_whose_source_is_not_indexed() {
+    addSource("src/main/groovy/other/Hello.groovy");
+    RelevantClassFileFilter filter = filter();
+
+    assertThat(filter.test(hello)).isFalse();
+    assertThat(filter.skipped()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_keep_class_files_it_can_not_read() {
+    assertThat(filter().test(new byte[] {1, 2, 3})).isTrue();
+  }
+
+  private RelevantClassFileFilter filter() {
+    return new RelevantClassFileFilter(new GroovyFileSystem(fileSystem).sourcePathIndex());
+  }
+
+  private void addSource(String path) {
+    fileSystem.add(
+        TestInputFileBuilder.create("", path).setLanguage(Groovy.KEY).setType(Type.MAIN).build());
+  }
+}
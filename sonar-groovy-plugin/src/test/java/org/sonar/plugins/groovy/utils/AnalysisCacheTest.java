@@ -0,0 +1,169 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFile.Status;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+
+public class AnalysisCacheTest {
+
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private SensorContextTester context;
+  private InMemoryCache firstAnalysis;
+  private Path workDir;
+
+  @Before
+  public void setUp() throws Exception {
+    File baseDir = temp.newFolder();
+    context = SensorContextTester.create(baseDir);
+    workDir = temp.newFolder("work").toPath();
+    context.fileSystem().setWorkDir(workDir);
+    context.setCacheEnabled(true);
+    firstAnalysis = new InMemoryCache();
+    context.setPreviousCache(new InMemoryCache());
+    context.setNextCache(firstAnalysis);
+  }
+
+  @Test
+  public void reuse_entry_of_unchanged_file() {
+    InputFile file = file(Status.SAME);
+    new AnalysisCache(context, "test", "rules").write(file, out -> out.writeInt(42));
+
+    InMemoryCache secondAnalysis = nextAnalysis();
+    Integer cached = new AnalysisCache(context, "test", "rules").read(file, in -> in.readInt());
+
+    assertThat(cached).isEqualTo(42);
+    assertThat(secondAnalysis.keys()).isEqualTo(firstAnalysis.keys());
+  }
+
+  @Test
+  public void spool_large_entry_to_work_directory() {
+    InputFile file = file(Status.SAME);
+    new AnalysisCache(context, "test", "rules", 16)
+        .write(
+            file,
+            out -> {
+              for (int i = 0; i < 100; i++) {
+                out.writeInt(i);
+              }
+            });
+
+    nextAnalysis();
+    int[] cached =
+        new AnalysisCache(context, "test", "rules")
+            .read(
+                file,
+                in -> {
+                  int[] values = new int[100];
+                  for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readInt();
+                  }
+                  return values;
+                });
+
+    assertThat(cached).hasSize(100).startsWith(0, 1).endsWith(98, 99);
+    assertThat(workDir.toFile().list()).isEmpty();
+  }
+
+  @Test
+  public void ignore_entry_of_changed_file() {
+    new AnalysisCache(context, "test", "rules").write(file(Status.SAME), out -> out.writeInt(42));
+
+    InMemoryCache secondAnalysis = nextAnalysis();
+    Integer cached =
+        new AnalysisCache(context, "test", "rules").read(file(Status.CHANGED), in -> in.readInt());
+
+    assertThat(cached).isNull();
+    assertThat(secondAnalysis.keys()).isEmpty();
+  }
+
+  @Test
+  public void ignore_entry_computed_with_other_settings() {
+    InputFile file = file(Status.SAME);
+    new AnalysisCache(context, "test", "rules").write(file, out -> out.writeInt(42));
+
+    nextAnalysis();
+
+    assertThat(new AnalysisCache(context, "test", "other rules").read(file, in -> in.readInt()))
+        .isNull();
+    assertThat(new AnalysisCache(context, "other", "rules").read(file, in -> in.readInt()))
+        .isNull();
+  }
+
+  @Test
+  public void fingerprint_includes_analyzer_versions() {
+    assertThat(AnalysisCache.ANALYZER_VERSIONS).contains("plugin ", "CodeNarc ", "GMetrics ");
+  }
+
+  @Test
+  public void do_nothing_when_cache_is_disabled() {
+    context.setCacheEnabled(false);
+    InputFile file = file(Status.SAME);
+    new AnalysisCache(context, "test", "rules").write(file, out -> out.writeInt(42));
+
+    assertThat(firstAnalysis.keys()).isEmpty();
+    assertThat(new AnalysisCache(context, "test", "rules").read(file, in -> in.readInt())).isNull();
+  }
+
+  @Test
+  public void strings() {
+    InputFile file = file(Status.SAME);
+    new AnalysisCache(context, "test", "rules")
+        .write(
+            file,
+            out -> {
+              AnalysisCache.writeString(out, "é");
+              AnalysisCache.writeString(out, null);
+            });
+
+    nextAnalysis();
+    String[] cached =
+        new AnalysisCache(context, "test", "rules")
+            .read(
+                file,
+                in -> new String[] {AnalysisCache.readString(in), AnalysisCache.readString(in)});
+
+    assertThat(cached).containsExactly("é", null);
+  }
+
+  private InMemoryCache nextAnalysis() {
+    InMemoryCache next = firstAnalysis.next();
+    context.setPreviousCache(firstAnalysis);
+    context.setNextCache(next);
+    return next;
+  }
+
+  private static InputFile file(Status status) {
+    return TestInputFileBuilder.create("", "src/Foo.groovy")
+        .setContents("class Foo {}")
+        .setStatus(status)
+        .build();
+  }
+}
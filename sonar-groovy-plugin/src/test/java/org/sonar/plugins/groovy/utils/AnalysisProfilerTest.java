@@ -0,0 +1,121 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
+
+public class AnalysisProfilerTest {
+
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private SensorContextTester context;
+  private Path workDir;
+
+  @Before
+  public void setUp() throws Exception {
+    File baseDir = temp.newFolder();
+    context = SensorContextTester.create(baseDir);
+    workDir = temp.newFolder("work").toPath();
+    context.fileSystem().setWorkDir(workDir);
+  }
+
+  @Test
+  public void write_profile_of_each_phase() throws Exception {
+    MapSettings settings = new MapSettings();
+    settings.setProperty(AnalysisProfiler.PROFILE_KEY, true);
+    context.setSettings(settings);
+    Path source = temp.newFile("Foo.groovy").toPath();
+    Files.write(source, "class Foo {}".getBytes(StandardCharsets.UTF_8));
+
+    AnalysisProfiler profiler = AnalysisProfiler.create(context, "TestSensor");
+    assertThat(profiler.isEnabled()).isTrue();
+    profiler.start("lex").file(source).close();
+    ParallelTasks.forEach(
+        Arrays.asList(1, 2, 3), 3, i -> profiler.start("report").files(i).close());
+    profiler.report();
+
+    String json =
+        new String(
+            Files.readAllBytes(
+                workDir.resolve(AnalysisProfiler.REPORT_DIRECTORY).resolve("TestSensor.json")),
+            StandardCharsets.UTF_8);
+    assertThat(json)
+        .startsWith("{\"sensor\":\"TestSensor\",\"phases\":[")
+        .contains("{\"name\":\"lex\",\"measures\":1,\"files\":1,\"bytes\":12,")
+        .contains("{\"name\":\"report\",\"measures\":3,\"files\":6,\"bytes\":0,");
+  }
+
+  @Test
+  public void sum_wall_time_of_interleaved_phases() throws Exception {
+    MapSettings settings = new MapSettings();
+    settings.setProperty(AnalysisProfiler.PROFILE_KEY, true);
+    context.setSettings(settings);
+
+    AnalysisProfiler profiler = AnalysisProfiler.create(context, "TestSensor");
+    for (int i = 0; i < 2; i++) {
+      profiler.start("lex").close();
+      try (AnalysisProfiler.Measure measure = profiler.start("metrics")) {
+        Thread.sleep(50);
+      }
+    }
+    profiler.report();
+
+    String json =
+        new String(
+            Files.readAllBytes(
+                workDir.resolve(AnalysisProfiler.REPORT_DIRECTORY).resolve("TestSensor.json")),
+            StandardCharsets.UTF_8);
+    assertThat(millis(json, "lex", "wallMs")).isLessThan(50);
+    assertThat(millis(json, "lex", "spanMs")).isGreaterThanOrEqualTo(50);
+    assertThat(millis(json, "metrics", "wallMs")).isGreaterThanOrEqualTo(100);
+  }
+
+  private static double millis(String json, String phase, String field) {
+    Matcher matcher =
+        Pattern.compile("\\{\"name\":\"" + phase + "\"[^}]*\"" + field + "\":([0-9.]+)")
+            .matcher(json);
+    assertThat(matcher.find()).isTrue();
+    return Double.parseDouble(matcher.group(1));
+  }
+
+  @Test
+  public void disabled_profiler_should_measure_nothing() {
+    AnalysisProfiler profiler = AnalysisProfiler.disabled();
+    profiler.start("lex").files(1).close();
+    profiler.report();
+
+    assertThat(profiler.isEnabled()).isFalse();
+
+    assertThat(workDir.resolve(AnalysisProfiler.REPORT_DIRECTORY)).doesNotExist();
+  }
+}
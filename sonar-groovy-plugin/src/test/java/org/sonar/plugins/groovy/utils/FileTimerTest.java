@@ -0,0 +1,117 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+public class FileTimerTest {
+
+  @Test
+  public void keep_slowest_files() {
+    List<InputFile> slowFiles = new ArrayList<>();
+    try (FileTimer timer = new FileTimer("Test", 0)) {
+      for (int i = 0; i < FileTimer.SLOWEST_FILES + 5; i++) {
+        boolean slow = i % 3 != 0;
+        InputFile file = file("File" + i);
+        if (slow) {
+          slowFiles.add(file);
+        }
+        assertThat(timer.time(file, () -> sleep(slow ? 20 : 0))).isEqualTo(slow ? 20 : 0);
+      }
+
+      assertThat(timer.slowestFiles()).containsExactlyInAnyOrderElementsOf(slowFiles);
+      assertThat(timer.skipped()).isZero();
+    }
+  }
+
+  @Test
+  public void skip_file_over_budget() throws Exception {
+    awaitNoAbandonedAnalysis();
+    CountDownLatch release = new CountDownLatch(1);
+    try (FileTimer timer = new FileTimer("Test", 50)) {
+      Integer result = timer.time(file("Slow"), () -> await(release, 42));
+
+      assertThat(result).isNull();
+      assertThat(timer.skipped()).isEqualTo(1);
+      assertThat(FileTimer.abandonedRunning()).isEqualTo(1);
+      assertThat(timer.time(file("Fast"), () -> 1)).isEqualTo(1);
+      assertThat(timer.slowestFiles()).containsExactly(file("Slow"), file("Fast"));
+    } finally {
+      release.countDown();
+    }
+    awaitNoAbandonedAnalysis();
+  }
+
+  @Test
+  public void analyse_on_calling_thread_once_too_many_analyses_are_abandoned() throws Exception {
+    awaitNoAbandonedAnalysis();
+    CountDownLatch release = new CountDownLatch(1);
+    try (FileTimer timer = new FileTimer("Test", 20)) {
+      for (int i = 0; i < FileTimer.MAX_ABANDONED_ANALYSES; i++) {
+        assertThat(timer.time(file("Slow" + i), () -> await(release, 42))).isNull();
+      }
+      Thread caller = Thread.currentThread();
+
+      assertThat(timer.time(file("Other"), () -> Thread.currentThread() == caller ? sleep(50) : 0))
+          .isEqualTo(50);
+      assertThat(timer.skipped()).isEqualTo(FileTimer.MAX_ABANDONED_ANALYSES);
+    } finally {
+      release.countDown();
+    }
+    awaitNoAbandonedAnalysis();
+  }
+
+  private static void awaitNoAbandonedAnalysis() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (FileTimer.abandonedRunning() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(FileTimer.abandonedRunning()).isZero();
+  }
+
+  private static Integer await(CountDownLatch release, int result) {
+    try {
+      release.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return result;
+  }
+
+  private static Integer sleep(int millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return millis;
+  }
+
+  private static InputFile file(String name) {
+    return TestInputFileBuilder.create("", name + ".groovy").build();
+  }
+}
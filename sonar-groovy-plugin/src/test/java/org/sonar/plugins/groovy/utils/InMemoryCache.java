@@ -0,0 +1,91 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+
+/** Scanner cache of a single analysis, which the following analysis reads from. */
+public class InMemoryCache implements ReadCache, WriteCache {
+
+  private final Map<String, byte[]> entries = new HashMap<>();
+  private final Map<String, byte[]> previousEntries;
+
+  public InMemoryCache() {
+    this(new HashMap<>());
+  }
+
+  private InMemoryCache(Map<String, byte[]> previousEntries) {
+    this.previousEntries = previousEntries;
+  }
+
+  /** Returns the cache of the next analysis, for which this one is the previous cache. */
+  public InMemoryCache next() {
+    return new InMemoryCache(entries);
+  }
+
+  public Set<String> keys() {
+    return entries.keySet();
+  }
+
+  @Override
+  public InputStream read(String key) {
+    if (!entries.containsKey(key)) {
+      throw new IllegalArgumentException("No cache for key: " + key);
+    }
+    return new ByteArrayInputStream(entries.get(key));
+  }
+
+  @Override
+  public boolean contains(String key) {
+    return entries.containsKey(key);
+  }
+
+  @Override
+  public void write(String key, InputStream data) {
+    try {
+      write(key, data.readAllBytes());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void write(String key, byte[] data) {
+    if (entries.containsKey(key)) {
+      throw new IllegalArgumentException("Cache already contains key: " + key);
+    }
+    entries.put(key, data);
+  }
+
+  @Override
+  public void copyFromPrevious(String key) {
+    if (!previousEntries.containsKey(key)) {
+      throw new IllegalArgumentException("No previous cache for key: " + key);
+    }
+    write(key, previousEntries.get(key));
+  }
+}
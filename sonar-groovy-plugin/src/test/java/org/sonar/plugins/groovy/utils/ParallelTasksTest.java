@@ -0,0 +1,117 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2025 SonarQube Community
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.junit.Test;
+
+public class ParallelTasksTest {
+
+  private static final List<Integer> ITEMS = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8);
+
+  @Test
+  public void map_should_keep_input_order() {
+    assertThat(ParallelTasks.map(ITEMS, 4, i -> i * 10))
+        .containsExactly(10, 20, 30, 40, 50, 60, 70, 80);
+    assertThat(ParallelTasks.map(ITEMS, 1, i -> i * 10))
+        .containsExactly(10, 20, 30, 40, 50, 60, 70, 80);
+  }
+
+  @Test
+  public void for_each_should_visit_every_item() {
+    Set<Integer> visited = ConcurrentHashMap.newKeySet();
+    ParallelTasks.forEach(ITEMS, 3, visited::add);
+    assertThat(visited).containsExactlyInAnyOrderElementsOf(ITEMS);
+  }
+
+  @Test
+  public void sequential_tasks_run_on_calling_thread() {
+    Thread caller = Thread.currentThread();
+    assertThat(ParallelTasks.map(ITEMS, 1, i -> Thread.currentThread())).containsOnly(caller);
+  }
+
+  @Test
+  public void produced_elements_are_consumed_on_calling_thread() {
+    Thread caller = Thread.currentThread();
+    List<Integer> consumed = new ArrayList<>();
+    ParallelTasks.produceAndConsume(
+        ITEMS,
+        4,
+        2,
+        (Integer i, Consumer<Integer> elements) -> {
+          for (int j = 0; j < 10; j++) {
+            elements.accept(i * 10 + j);
+          }
+        },
+        element -> {
+          assertThat(Thread.currentThread()).isSameAs(caller);
+          consumed.add(element);
+        });
+
+    assertThat(consumed)
+        .hasSize(ITEMS.size() * 10)
+        .doesNotHaveDuplicates()
+        .contains(10, 19, 80, 89);
+  }
+
+  @Test
+  public void producer_failures_are_propagated() {
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                ParallelTasks.produceAndConsume(
+                    ITEMS,
+                    4,
+                    2,
+                    (Integer i, Consumer<Integer> elements) -> {
+                      elements.accept(i);
+                      if (i == 5) {
+                        throw new IllegalStateException("boom");
+                      }
+                    },
+                    element -> {}));
+    assertThat(e).hasMessage("boom");
+  }
+
+  @Test
+  public void failures_are_propagated() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                ParallelTasks.forEach(
+                    ITEMS,
+                    4,
+                    i -> {
+                      if (i == 5) {
+                        throw new IllegalArgumentException("boom");
+                      }
+                    }));
+    assertThat(e).hasMessage("boom");
+  }
+}